@@ -0,0 +1,82 @@
+/*
+ * com.github.donmor.filedialog.lib.FilterBenchmark <= [P|FileDialog]
+ * Last modified: 20:19:03 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matching names against extension filters, MIME type filters and the quick filter, without touching the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FilterBenchmark {
+
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	private String[] names;
+	private final FileDialogFilter extensions = new FileDialogFilter("Pictures", new String[]{".jpg", ".jpeg", ".png", ".gif", ".tar.gz"});
+	private FileDialogMimeResolver.Filter mime;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		names = SyntheticTree.names(size);
+		mime = new FileDialogMimeResolver.Filter("image/jpeg");
+	}
+
+	@Benchmark
+	public int extensions() {
+		int n = 0;
+		for (String name : names)
+			if (extensions.meetExtensions(name)) n++;
+		return n;
+	}
+
+	/**
+	 * A MIME type filter as the listing uses it, after the extensions met have been learned.
+	 */
+	@Benchmark
+	public int mimeFilter() {
+		int n = 0;
+		for (String name : names)
+			if (mime.accept(name)) n++;
+		return n;
+	}
+
+	/**
+	 * Resolving the type of every name, as done for files typed into the name field.
+	 */
+	@Benchmark
+	public int mimeLookup() {
+		int n = 0;
+		for (String name : names)
+			if ("image/jpeg".equals(FileDialogMimeResolver.getMimeType(name))) n++;
+		return n;
+	}
+
+	/**
+	 * Typing a query into a fresh quick filter, one char at a time.
+	 */
+	@Benchmark
+	public int[] quickFilter() {
+		FileDialogQuickFilter f = new FileDialogQuickFilter(names);
+		f.filter("i");
+		f.filter("im");
+		return f.filter("img1");
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * com.github.donmor.filedialog.lib.ListingBenchmark <= [P|FileDialog]
+ * Last modified: 23:58:44 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a directory on disk into a listing, alone and followed by the filtering and sorting a dialog does before showing it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ListingBenchmark {
+
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	private File dir;
+	private final FileDialogFilter filter = new FileDialogFilter("Pictures", new String[]{".jpg", ".png"});
+	private final FileDialogSorter sorter = new FileDialogSorter(true, Locale.US);
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = SyntheticTree.create(size);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SyntheticTree.delete(dir);
+	}
+
+	@Benchmark
+	public FileDialogListing scan() {
+		return FileDialogScanner.scan(dir, false, null).build(FileDialogListing.NONE, null);
+	}
+
+	@Benchmark
+	public void scanFilterSort(Blackhole bh) {
+		FileDialogListing l = FileDialogScanner.scan(dir, false, null).build(sorter);
+		int[] shown = new int[l.files.length];
+		int n = 0;
+		for (int pos : l.files)
+			if (filter.meetExtensions(l.name(pos))) shown[n++] = pos;
+		bh.consume(l);
+		bh.consume(Arrays.copyOf(shown, n));
+	}
+
+	/**
+	 * The same as Files, as listings were held before; for comparing the heap both take.
+	 */
+	@Benchmark
+	public void scanToFiles(Blackhole bh) {
+		FileDialogScanner.Result r = FileDialogScanner.scan(dir, false);
+		FileDialogSorter.Accumulator dirs = sorter.accumulator(), files = sorter.accumulator();
+		dirs.add(r.dirs);
+		files.add(r.files);
+		bh.consume(dirs.toArray());
+		bh.consume(files.toArray());
+	}
+}
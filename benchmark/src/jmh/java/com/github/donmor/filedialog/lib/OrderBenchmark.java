@@ -0,0 +1,72 @@
+/*
+ * com.github.donmor.filedialog.lib.OrderBenchmark <= [P|FileDialog]
+ * Last modified: 23:59:31 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switching the order of a listing on disk: the first switch of a listing, which reads sizes and dates unless the scan did, and later switches, which only sort.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OrderBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	@Param({"name", "size", "date", "type"})
+	public String key;
+
+	private File dir;
+	private FileDialogSorter sorter;
+	private int k;
+	// Attributes read, no index made
+	private FileDialogListing read;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		dir = SyntheticTree.create(size);
+		sorter = new FileDialogSorter(true, Locale.US);
+		k = key.equals("name") ? FileDialogOrder.NAME : key.equals("size") ? FileDialogOrder.SIZE : key.equals("date") ? FileDialogOrder.DATE : FileDialogOrder.TYPE;
+		read = FileDialogScanner.scan(dir, false, null).build(sorter);
+		read.readAttributes(read.files);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		SyntheticTree.delete(dir);
+	}
+
+	/**
+	 * Scanning and switching, as for a listing switched right after it is shown.
+	 */
+	@Benchmark
+	public int[] firstSwitch() {
+		FileDialogListing l = FileDialogScanner.scan(dir, false, null).build(sorter);
+		return new FileDialogOrder(l, l.files, false).index(k);
+	}
+
+	@Benchmark
+	public int[] laterSwitch() {
+		return new FileDialogOrder(read, read.files, false).index(k);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * com.github.donmor.filedialog.lib.SelectionBenchmark <= [P|FileDialog]
+ * Last modified: 20:27:15 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk selection in multi-select mode, and carrying a selection over when the listing is replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SelectionBenchmark {
+
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	private File[] items, relisted;
+	private final FileDialogSelection selection = new FileDialogSelection();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] names = SyntheticTree.names(size);
+		File dir = new File("/storage/emulated/0/Download");
+		items = SyntheticTree.files(dir, names);
+		// Equal files in new objects, as after a rescan
+		relisted = SyntheticTree.files(dir, names);
+	}
+
+	@Benchmark
+	public File[] selectAll() {
+		selection.clear();
+		selection.attach(items);
+		selection.selectAll();
+		return selection.toArray();
+	}
+
+	@Benchmark
+	public int rangeAndInvert() {
+		selection.clear();
+		selection.attach(items);
+		selection.set(size / 4, true);
+		selection.selectRange(size * 3 / 4);
+		selection.invert();
+		return selection.size();
+	}
+
+	/**
+	 * Half of the rows selected, then the listing is replaced by an equal one and back.
+	 */
+	@Benchmark
+	public int reattach() {
+		selection.clear();
+		selection.attach(items);
+		selection.set(0, true);
+		selection.selectRange(size / 2);
+		selection.attach(relisted);
+		selection.attach(items);
+		return selection.size();
+	}
+}
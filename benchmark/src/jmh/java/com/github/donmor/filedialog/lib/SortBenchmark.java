@@ -0,0 +1,74 @@
+/*
+ * com.github.donmor.filedialog.lib.SortBenchmark <= [P|FileDialog]
+ * Last modified: 20:23:50 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting a listing at once, and as pages arrive from the scanner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SortBenchmark {
+
+	// The scanner's pages double from this size up to MAX_PAGE
+	private static final int FIRST_PAGE = 256, MAX_PAGE = 16384;
+
+	@Param({"100", "1000", "10000", "100000", "1000000"})
+	public int size;
+
+	/**
+	 * "plain" compares case-folded chars, "natural" also orders digit runs by value, "collated" also collates text runs.
+	 */
+	@Param({"plain", "natural", "collated"})
+	public String order;
+
+	private String[] names;
+	private FileDialogSorter sorter;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		names = SyntheticTree.names(size);
+		sorter = new FileDialogSorter(!order.equals("plain"), order.equals("collated") ? Locale.US : null);
+	}
+
+	@Benchmark
+	public int[] sort() {
+		int[] positions = new int[names.length];
+		for (int i = 0; i < positions.length; i++)
+			positions[i] = i;
+		return sorter.sort(names, positions);
+	}
+
+	@Benchmark
+	public int[] accumulate() {
+		FileDialogSorter.Accumulator a = sorter.accumulator();
+		for (int from = 0, page = FIRST_PAGE; from < names.length; from += page, page = Math.min(page * 2, MAX_PAGE)) {
+			int n = Math.min(page, names.length - from);
+			String[] batch = new String[n];
+			int[] positions = new int[n];
+			for (int i = 0; i < n; i++) {
+				batch[i] = names[from + i];
+				positions[i] = from + i;
+			}
+			a.add(batch, positions);
+		}
+		return a.toPositions();
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * com.github.donmor.filedialog.lib.SyntheticTree <= [P|FileDialog]
+ * Last modified: 20:08:44 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Names and directories for the benchmarks, shaped like a camera roll or a download folder: numbered photos and videos, documents with mixed case, archives with double extensions, a tenth of directories and a few hidden entries. The same size always gives the same names.
+ */
+final class SyntheticTree {
+
+	private static final String[] PATTERNS = {
+			"IMG_%d.jpg", "IMG_%d.JPG", "VID_%d.mp4", "Screenshot_%d.png", "Report %d.pdf", "notes-%d.txt",
+			"song %d.mp3", "backup.%d.tar.gz", "page%d.HTML", "data_%d.bin", "README %d", "app-%d.apk",
+	};
+
+	private SyntheticTree() {
+	}
+
+	/**
+	 * @param size How many names.
+	 * @return The names, shuffled as a directory would list them. Every tenth is meant for a directory.
+	 */
+	static String[] names(int size) {
+		Random r = new Random(size);
+		String[] names = new String[size];
+		for (int i = 0; i < size; i++) {
+			String name = i % 10 == 9 ? "Folder " + i : String.format(PATTERNS[r.nextInt(PATTERNS.length)], i);
+			names[i] = i % 50 == 7 ? '.' + name : name;
+		}
+		for (int i = size - 1; i > 0; i--) {
+			int j = r.nextInt(i + 1);
+			String t = names[i];
+			names[i] = names[j];
+			names[j] = t;
+		}
+		return names;
+	}
+
+	static File[] files(File dir, String[] names) {
+		File[] files = new File[names.length];
+		for (int i = 0; i < names.length; i++)
+			files[i] = new File(dir, names[i]);
+		return files;
+	}
+
+	/**
+	 * Create the entries of {@link #names(int)} under a new temporary directory.
+	 */
+	static File create(int size) throws IOException {
+		File dir = Files.createTempDirectory("filedialog-bench-" + size).toFile();
+		for (String name : names(size)) {
+			File f = new File(dir, name);
+			if (name.startsWith("Folder ") || name.startsWith(".Folder ")) {
+				if (!f.mkdir()) throw new IOException("mkdir " + f);
+			} else if (!f.createNewFile()) throw new IOException("create " + f);
+		}
+		return dir;
+	}
+
+	static void delete(File dir) {
+		File[] children = dir.listFiles();
+		if (children != null)
+			for (File f : children)
+				if (f.isDirectory()) delete(f);
+				else f.delete();
+		dir.delete();
+	}
+}
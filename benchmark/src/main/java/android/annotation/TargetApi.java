@@ -0,0 +1,21 @@
+/*
+ * android.annotation.TargetApi <= [P|FileDialog]
+ * Last modified: 20:02:11 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Shim of the framework annotation, for the library sources compiled into the benchmarks.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD, ElementType.CONSTRUCTOR})
+@Retention(RetentionPolicy.CLASS)
+public @interface TargetApi {
+	int value();
+}
@@ -0,0 +1,24 @@
+/*
+ * android.os.Build <= [P|FileDialog]
+ * Last modified: 20:02:36 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.os;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks.
+ */
+public class Build {
+	public static class VERSION {
+		/**
+		 * Not a constant, as on a device. Set by -Dandroid.sdk, API 26 by default.
+		 */
+		public static final int SDK_INT = Integer.getInteger("android.sdk", VERSION_CODES.O);
+	}
+
+	public static class VERSION_CODES {
+		public static final int LOLLIPOP = 21;
+		public static final int O = 26;
+	}
+}
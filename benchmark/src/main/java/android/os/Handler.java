@@ -0,0 +1,19 @@
+/*
+ * android.os.Handler <= [P|FileDialog]
+ * Last modified: 20:03:02 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.os;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks. There is no main thread to post to.
+ */
+public class Handler {
+	public Handler(Looper looper) {
+	}
+
+	public final boolean post(Runnable r) {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * android.os.Looper <= [P|FileDialog]
+ * Last modified: 20:03:15 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.os;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks.
+ */
+public final class Looper {
+	private static final Looper MAIN = new Looper();
+
+	private Looper() {
+	}
+
+	public static Looper getMainLooper() {
+		return MAIN;
+	}
+}
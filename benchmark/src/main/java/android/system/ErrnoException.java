@@ -0,0 +1,16 @@
+/*
+ * android.system.ErrnoException <= [P|FileDialog]
+ * Last modified: 20:03:40 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.system;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks.
+ */
+public final class ErrnoException extends Exception {
+	public ErrnoException(String functionName, Throwable cause) {
+		super(functionName, cause);
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * android.system.Os <= [P|FileDialog]
+ * Last modified: 22:53:02 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks. stat() reads the "unix" attribute view, so it needs a Unix-like host.
+ */
+public final class Os {
+	private Os() {
+	}
+
+	public static StructStat stat(String path) throws ErrnoException {
+		try {
+			Map<String, Object> attrs = Files.readAttributes(Paths.get(path), "unix:mode,size,lastModifiedTime");
+			return new StructStat((Integer) attrs.get("mode"), (Long) attrs.get("size"), ((FileTime) attrs.get("lastModifiedTime")).to(TimeUnit.SECONDS));
+		} catch (IOException e) {
+			throw new ErrnoException("stat", e);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+/*
+ * android.system.OsConstants <= [P|FileDialog]
+ * Last modified: 20:04:05 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.system;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks.
+ */
+public final class OsConstants {
+	private static final int S_IFMT = 0170000, S_IFDIR = 0040000, S_IFREG = 0100000;
+
+	private OsConstants() {
+	}
+
+	public static boolean S_ISDIR(int mode) {
+		return (mode & S_IFMT) == S_IFDIR;
+	}
+
+	public static boolean S_ISREG(int mode) {
+		return (mode & S_IFMT) == S_IFREG;
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * android.system.StructStat <= [P|FileDialog]
+ * Last modified: 22:52:40 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.system;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks. Only the mode, size and modification time are filled in.
+ */
+public final class StructStat {
+	public final int st_mode;
+	public final long st_size, st_mtime;
+
+	public StructStat(int st_mode, long st_size, long st_mtime) {
+		this.st_mode = st_mode;
+		this.st_size = st_size;
+		this.st_mtime = st_mtime;
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * android.webkit.MimeTypeMap <= [P|FileDialog]
+ * Last modified: 20:05:10 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package android.webkit;
+
+import java.util.HashMap;
+
+/**
+ * Shim of the framework class, for the library sources compiled into the benchmarks. Knows the extensions the synthetic trees use, and a few more.
+ */
+public class MimeTypeMap {
+	private static final MimeTypeMap SINGLETON = new MimeTypeMap();
+	private final HashMap<String, String> types = new HashMap<>();
+
+	private MimeTypeMap() {
+		String[] t = {
+				"jpg", "image/jpeg", "jpeg", "image/jpeg", "png", "image/png", "gif", "image/gif", "webp", "image/webp",
+				"mp4", "video/mp4", "mkv", "video/x-matroska", "mp3", "audio/mpeg", "ogg", "audio/ogg",
+				"txt", "text/plain", "html", "text/html", "htm", "text/html", "pdf", "application/pdf",
+				"zip", "application/zip", "gz", "application/gzip", "apk", "application/vnd.android.package-archive",
+		};
+		for (int i = 0; i < t.length; i += 2)
+			types.put(t[i], t[i + 1]);
+	}
+
+	public static MimeTypeMap getSingleton() {
+		return SINGLETON;
+	}
+
+	public String getMimeTypeFromExtension(String extension) {
+		return types.get(extension);
+	}
+}
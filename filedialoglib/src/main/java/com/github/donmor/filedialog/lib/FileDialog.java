@@ -1,41 +1,18 @@
 /*
  * com.github.donmor.filedialog.lib.FileDialog <= [P|FileDialog]
- * Last modified: 15:32:28 2019/05/10
+ * Last modified: 01:52:14 2026/10/18
  * Copyright (c) 2019 donmor
  */
 
 package com.github.donmor.filedialog.lib;
 
-import android.app.AlertDialog;
 import android.content.Context;
-import android.content.DialogInterface;
-import android.os.Build;
 import android.os.Environment;
-import android.os.StatFs;
-import android.os.storage.StorageManager;
-import androidx.recyclerview.widget.LinearLayoutManager;
-import androidx.recyclerview.widget.RecyclerView;
-import android.text.Editable;
-import android.text.TextUtils;
-import android.text.TextWatcher;
-import android.view.KeyEvent;
-import android.view.LayoutInflater;
-import android.view.View;
-import android.webkit.MimeTypeMap;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
-import android.widget.Button;
-import android.widget.EditText;
-import android.widget.ImageButton;
-import android.widget.Spinner;
-import android.widget.TextView;
-import android.widget.Toast;
 
 //import com.github.donmor.filedialog.lib.utils.FileDialogAdapter;
 //import com.github.donmor.filedialog.lib.utils.MimeTypeUtil;
 
 import java.io.File;
-import java.lang.reflect.Method;
 
 /**
  * The class FileDialog provides a set of methods to open dialogs for file-operating. It contains a set of static methods opening AlertDialogs to choose files or a directory, and a callback providing a java.io.File array contains files or directory chosen for further usages. Make sure that WRITE_EXTERNAL_STORAGE permission of the app have been set to GRANTED if API level is higher than 22, and "android.defaultConfig.vectorDrawables.useSupportLibrary = true" should be added into build.gradle of the app if API level is lower than 21.
@@ -48,7 +25,63 @@ public abstract class FileDialog {
 	 */
 	public static final String MIME_ALL = "*/*";
 
-	private static final String METHOD_GET_VOLUME_PATHS = "getVolumePaths", STR_EMPTY = "";
+	/**
+	 * The metric of probing storage volumes. The count is the number of volumes.
+	 */
+	public static final int METRIC_STORAGE_PROBE = 0;
+	/**
+	 * The metric of reading a directory. The count is the number of entries kept. It includes sorting the entries as they are read, which is also reported as {@link #METRIC_SORT}.
+	 */
+	public static final int METRIC_SCAN = 1;
+	/**
+	 * The metric of applying the file type filter or the quick filter. The count is the number of entries checked.
+	 */
+	public static final int METRIC_FILTER = 2;
+	/**
+	 * The metric of sorting entries. The count is the number of entries sorted.
+	 */
+	public static final int METRIC_SORT = 3;
+	/**
+	 * The metric from opening a directory to drawing the first frame that shows its entries, or shows that there are none. The count is the number of rows shown.
+	 */
+	public static final int METRIC_FIRST_FRAME = 4;
+	/**
+	 * The metric of creating the view of a row. The count is 1.
+	 */
+	public static final int METRIC_INFLATE_ROW = 5;
+	/**
+	 * The metric of binding a row to an entry. The count is 1.
+	 */
+	public static final int METRIC_BIND_ROW = 6;
+	/**
+	 * The event of a directory served from the listing cache. It is not timed. The count is the number of entries.
+	 */
+	public static final int METRIC_CACHE_HIT = 7;
+	/**
+	 * The event of a directory that had to be scanned because it was not cached or was outdated. It is not timed. The count is 1.
+	 */
+	public static final int METRIC_CACHE_MISS = 8;
+
+	/**
+	 * Sort entries by name, comparing letters regardless of case.
+	 */
+	public static final int SORT_NAME = FileDialogOrder.NAME;
+	/**
+	 * Sort entries by name, comparing digit runs by their value, so "IMG_2" goes before "IMG_10". This is the default.
+	 */
+	public static final int SORT_NATURAL = FileDialogOrder.NATURAL;
+	/**
+	 * Sort files by size. Directories keep their name order.
+	 */
+	public static final int SORT_SIZE = FileDialogOrder.SIZE;
+	/**
+	 * Sort entries by modification time.
+	 */
+	public static final int SORT_DATE = FileDialogOrder.DATE;
+	/**
+	 * Sort files by extension. Directories keep their name order.
+	 */
+	public static final int SORT_TYPE = FileDialogOrder.TYPE;
 
 	/**
 	 * The call back that will be run when the dialog is closed.
@@ -69,6 +102,37 @@ public abstract class FileDialog {
 
 	}
 
+	/**
+	 * The call back that receives storage volumes as they are probed.
+	 */
+	public interface OnStorageProbedListener {
+
+		/**
+		 * Invoked on the main thread as volumes answer.
+		 *
+		 * @param volumes  the volumes known so far, in the order the system lists them.
+		 * @param finished whether every volume has answered. It is true in the last call only.
+		 */
+		void onStorageProbed(FileDialogVolume[] volumes, boolean finished);
+
+	}
+
+	/**
+	 * The call back that receives timings and counts of the work done by dialogs.
+	 */
+	public interface OnMetricsListener {
+
+		/**
+		 * Invoked as each phase finishes, on the thread that did the work, which may be a background thread. It should return quickly, e.g. by adding the values to counters.
+		 *
+		 * @param metric the phase, one of the METRIC_ constants.
+		 * @param nanos  how long the phase took, in nanoseconds. It is 0 for events that are only counted.
+		 * @param count  how many entries the phase handled. See the METRIC_ constants.
+		 */
+		void onMetric(int metric, long nanos, int count);
+
+	}
+
 	/**
 	 * Open a dialog to select a single file to be opened.
 	 *
@@ -345,427 +409,124 @@ public abstract class FileDialog {
 	}
 
 	private static void fileDialog(final Context parent, File startDirectory, String filename, final int mode, FileDialogFilter[] filters, int filterIndex, String[] mimes, int det, final boolean showHidden, boolean ignoreReadOnly, final OnFileTouchedListener listener) {
-		final View view = LayoutInflater.from(parent).inflate(R.layout.file_dialog, null);
-		String[] mimeTypes = null;
-		final MimeTypeMap mimeTypeMap = MimeTypeMap.getSingleton();
-		if (mimes != null) {
-			boolean vAll = false;
-			String[] vMime = new String[mimes.length];
-			int i = 0;
-			for (String v : mimes) {
-				if (v.equals(MIME_ALL)) vAll = true;
-				else if (mimeTypeMap.hasMimeType(v)) {
-					vMime[i] = v;
-					i++;
-				}
-			}
-			if (vAll || i == 0) {
-				vMime[i] = MIME_ALL;
-				i++;
-			}
-			String[] xm = new String[i];
-			System.arraycopy(vMime, 0, xm, 0, i);
-			mimeTypes = xm;
-		}
-		final EditText fName = view.findViewById(R.id.save_f_name);
-		if (mode < 3) fName.setVisibility(View.GONE);
-		else if (filename != null && filename.length() > 0) fName.setText(filename);
-		final TextView lblPath = view.findViewById(R.id.lblPath);
-		try {
-			if (!startDirectory.isDirectory() || !startDirectory.canWrite()) throw new Exception();
-		} catch (Exception e) {
-			startDirectory = Environment.getExternalStorageDirectory();
-		}
-		lblPath.setText(startDirectory.getAbsolutePath());
-		Spinner spnExt = view.findViewById(R.id.spnExt);
-		if (mode == 2) spnExt.setVisibility(View.GONE);
-		else {
-			ArrayAdapter<String> spinnerAdapter;
-			if (mimeTypes != null) {
-				switch (det) {
-					case 0:
-						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, mimeTypes);
-						break;
-					case 1:
-						String[] des = new String[mimeTypes.length];
-						for (int i = 0; i < mimeTypes.length; i++) {
-							if (mimeTypes[i].equals(MIME_ALL))
-								des[i] = '.' + mimeTypeMap.getExtensionFromMimeType(mimeTypes[i]);
-						}
-						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, des);
-						break;
-					case 2:
-						String[] desc = new String[mimeTypes.length];
-						for (int i = 0; i < mimeTypes.length; i++) {
-							if (mimeTypes[i].equals(MIME_ALL))
-								desc[i] = desc[i] + '(' + '.' + mimeTypeMap.getExtensionFromMimeType(mimeTypes[i]) + ')';
-						}
-						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, desc);
-						break;
-					default:
-						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, mimeTypes);
-						break;
-				}
-
-				spinnerAdapter.setDropDownViewResource(R.layout.ext_slot);
-				spnExt.setAdapter(spinnerAdapter);
-				if (filterIndex > 0 && filterIndex < mimeTypes.length)
-					spnExt.setSelection(filterIndex);
-				if (mimeTypes.length < 2) spnExt.setEnabled(false);
-			} else if (filters != null) {
-				String[] fil = new String[filters.length];
-				for (int i = 0; i < filters.length; i++)
-					fil[i] = filters[i].name;
-				spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, fil);
-				spinnerAdapter.setDropDownViewResource(R.layout.ext_slot);
-				spnExt.setAdapter(spinnerAdapter);
-				if (filterIndex > 0 && filterIndex < filters.length)
-					spnExt.setSelection(filterIndex);
-				if (filters.length < 2) spnExt.setEnabled(false);
-			}
-		}
-		final RecyclerView dir = view.findViewById(R.id.diFileList);
-		dir.setLayoutManager(new LinearLayoutManager(view.getContext()));
-		final FileDialogAdapter dirAdapter = new FileDialogAdapter(view.getContext(), filters, spnExt.getSelectedItemPosition(), mimeTypes, mimeTypeMap, startDirectory, mode == 1, mode == 2, showHidden, ignoreReadOnly);
-		dir.setAdapter(dirAdapter);
-		final Button btnBack = view.findViewById(R.id.btnBack);
-		btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !startDirectory.equals(Environment.getExternalStorageDirectory()));
-		ImageButton btnNewFolder = view.findViewById(R.id.btnNewFolder);
-		if (mode < 2) btnNewFolder.setVisibility(View.GONE);
-		else btnNewFolder.setOnClickListener(new View.OnClickListener() {
-			@Override
-			public void onClick(View v) {
-				final View view1 = LayoutInflater.from(view.getContext()).inflate(R.layout.fn_slot, null);
-				final EditText editText = view1.findViewById(R.id.eFn);
-				final AlertDialog newFolderDialog = new AlertDialog.Builder(view.getContext())
-						.setTitle(R.string.new_folder)
-						.setView(view1)
-						.setNegativeButton(android.R.string.cancel, null)
-						.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
-							@Override
-							public void onClick(DialogInterface dialog, int which) {
-								File f = new File(dirAdapter.getCurrentDir().getAbsolutePath() + '/' + editText.getText().toString());
-								if (f.exists())
-									Toast.makeText(view.getContext(), R.string.folder_already_exist, Toast.LENGTH_SHORT).show();
-								else {
-									boolean d = f.mkdir();
-									if (d && f.exists()) {
-										dirAdapter.setDir(f);
-										dir.setAdapter(dirAdapter);
-										lblPath.setText(f.getAbsolutePath());
-										btnBack.setEnabled(true);
-									}
-								}
-							}
-						})
-						.show();
-				final Button okx = newFolderDialog.getButton(AlertDialog.BUTTON_POSITIVE);
-				okx.setEnabled(false);
-				editText.addTextChangedListener(new TextWatcher() {
-					@Override
-					public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-
-					}
-
-					@Override
-					public void onTextChanged(CharSequence s, int start, int before, int count) {
-
-					}
-
-					@Override
-					public void afterTextChanged(Editable s) {
-						if (editText.getText().toString().indexOf('.') == 0) {
-							try {
-								if (!showHidden) {
-									okx.setEnabled(false);
-									Toast.makeText(view1.getContext(), R.string.cannot_create_hidden_files, Toast.LENGTH_SHORT).show();
-								} else okx.setEnabled(editText.getText().toString().substring(1).length() != 0);
-							} catch (Exception e) {
-								e.printStackTrace();
-							}
-						} else if (editText.getText().toString().indexOf('+') == 0 || editText.getText().toString().indexOf('-') == 0) {
-							okx.setEnabled(false);
-							Toast.makeText(view1.getContext(), R.string.filename_cannot_begin_with, Toast.LENGTH_SHORT).show();
-						} else if (illegalFilename(editText.getText().toString())) {
-							okx.setEnabled(false);
-							Toast.makeText(view1.getContext(), R.string.filename_cannot_contains, Toast.LENGTH_SHORT).show();
-						} else okx.setEnabled(editText.getText().toString().length() > 0);
-					}
-				});
-				editText.setOnEditorActionListener(new TextView.OnEditorActionListener() {
-					@Override
-					public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
-						if (okx.isEnabled())
-							if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
-								okx.performClick();
-							else
-								okx.callOnClick();
-						return true;
-					}
-				});
-			}
-		});
-		if (mode != 2) {
-			spnExt.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
-				@Override
-				public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-					dirAdapter.setFilterIndex(position);
-					dirAdapter.reload();
-					dir.setAdapter(dirAdapter);
-				}
-
-				@Override
-				public void onNothingSelected(AdapterView<?> parent) {
-
-				}
-			});
-		}
-		AlertDialog.Builder builder = new AlertDialog.Builder(parent).setView(view);
-		if (mode == 0) builder.setTitle(R.string.open);
-		else {
-			if (mode == 1) builder.setTitle(R.string.open);
-			else if (mode == 2) builder.setTitle(R.string.select_dir);
-			else if (mode == 3) builder.setTitle(R.string.save_as);
-			builder.setNegativeButton(android.R.string.cancel, new DialogInterface.OnClickListener() {
-				@Override
-				public void onClick(DialogInterface dialog, int which) {
-					dialog.cancel();
-				}
-			})
-					.setPositiveButton(android.R.string.ok, null);
-		}
-		final AlertDialog fileDialog = builder.create();
-		fileDialog.setCanceledOnTouchOutside(false);
-		fileDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
-			@Override
-			public void onCancel(DialogInterface dialog) {
-				listener.onCanceled();
-			}
-		});
-		fileDialog.show();
-		final Button ok = fileDialog.getButton(AlertDialog.BUTTON_POSITIVE);
-		if (mode == 1) ok.setEnabled(false);
-		else if (mode == 2) ok.setEnabled(true);
-		else if (mode == 3) {
-			if (fName.getText().toString().indexOf('.') == 0) {
-				ok.setEnabled(showHidden && fName.getText().toString().substring(1).length() != 0);
-			} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0 || illegalFilename(fName.getText().toString())) {
-				ok.setEnabled(false);
-			} else ok.setEnabled(fName.getText().toString().length() > 0);
-		}
-		ok.setOnClickListener(new View.OnClickListener() {
-			@Override
-			public void onClick(View v) {
-				if (mode == 1) {
-					File[] files = dirAdapter.getSelectedFiles();
-					if (files.length > 0) {
-						listener.onFileTouched(files);
-						fileDialog.dismiss();
-					}
-				} else if (mode == 2) {
-					listener.onFileTouched(new File[]{dirAdapter.getCurrentDir()});
-					fileDialog.dismiss();
-				} else if (mode == 3) {
-					String fn = fName.getText().toString();
-					String mmx = dirAdapter.mimeTypes != null
-							?
-							dirAdapter.mimeTypes[dirAdapter.getFilterIndex()]
-							:
-							null;
-					FileDialogFilter ffx = dirAdapter.filters != null
-							?
-							dirAdapter.filters[dirAdapter.getFilterIndex()]
-							:
-							null;
-					fn = mmx != null
-							?
-							(mmx.equals(MIME_ALL) || mmx.equals(mimeTypeMap.getMimeTypeFromExtension(MimeTypeMap.getFileExtensionFromUrl(fn)))
-									?
-									fn
-									:
-									fn + '.' + mimeTypeMap.getExtensionFromMimeType(mmx))
-							:
-							ffx != null
-									?
-									ffx.meetExtensions(fn)
-											?
-											fn
-											:
-											fn + ffx.extensions[0]
-									:
-									fn;
-					String fPath = dirAdapter.getCurrentDir().getAbsolutePath() + '/' + fn;
-					final File of = new File(fPath);
-					if (of.exists()) {
-						new AlertDialog.Builder(view.getContext())
-								.setMessage(R.string.file_already_exist)
-								.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
-									@Override
-									public void onClick(DialogInterface dialog, int which) {
-										listener.onFileTouched(new File[]{of});
-										fileDialog.dismiss();
-									}
-								})
-								.setNegativeButton(android.R.string.cancel, null)
-								.show();
-					} else {
-						listener.onFileTouched(new File[]{of});
-						fileDialog.dismiss();
-					}
-				}
-			}
-		});
-		btnBack.setOnClickListener(new View.OnClickListener() {
-			@Override
-			public void onClick(View v) {
-				File f = dirAdapter.getParentDir();
-				if (f != null && f.exists() && f.isDirectory()) {
-					dirAdapter.setDir(f);
-					dir.setAdapter(dirAdapter);
-					lblPath.setText(f.getAbsolutePath());
-					btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !dirAdapter.getRootDir().getAbsolutePath().equals(f.getAbsolutePath()));
-					if (mode == 1) ok.setEnabled(false);
-					else if (mode == 2) ok.setEnabled(true);
-					else if (mode == 3) {
-						if (fName.getText().toString().indexOf('.') == 0) {
-							ok.setEnabled(showHidden && fName.getText().toString().substring(1).length() != 0);
-						} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0 || illegalFilename(fName.getText().toString())) {
-							ok.setEnabled(false);
-						} else ok.setEnabled(fName.getText().toString().length() > 0);
-					}
-					if (fName.getText().toString().length() > 0 && !illegalFilename(fName.getText().toString()))
-						ok.setEnabled(true);
-				} else {
-					dirAdapter.setRoot();
-					dir.setAdapter(dirAdapter);
-					lblPath.setText(STR_EMPTY);
-					btnBack.setEnabled(false);
-					ok.setEnabled(false);
-				}
-			}
-		});
-		dirAdapter.setOnItemClickListener(new FileDialogAdapter.ItemClickListener() {
-			@Override
-			public void onItemClick(int position) {
-				File f = dirAdapter.getFile(position);
-				if (f.isDirectory()) {
-					dirAdapter.setDir(f);
-					dir.setAdapter(dirAdapter);
-					lblPath.setText(f.getAbsolutePath());
-					btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !dirAdapter.getRootDir().getAbsolutePath().equals(f.getAbsolutePath()));
-					if (mode == 1) ok.setEnabled(false);
-					else if (mode == 2) ok.setEnabled(true);
-					else if (mode == 3) {
-						if (fName.getText().toString().indexOf('.') == 0) {
-							ok.setEnabled(showHidden && fName.getText().toString().substring(1).length() != 0);
-						} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0 || illegalFilename(fName.getText().toString())) {
-							ok.setEnabled(false);
-						} else ok.setEnabled(fName.getText().toString().length() > 0);
-					}
-				} else if (f.isFile()) {
-					if (mode == 0) {
-						listener.onFileTouched(new File[]{f});
-						fileDialog.dismiss();
-					} else if (mode == 1) {
-						ok.setEnabled(dirAdapter.getSelectedFiles().length > 0);
-					} else if (mode == 3) {
-						String fn = f.getName();
-						if (fn.equals(fName.getText().toString()))
-							if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
-								ok.performClick();
-							else
-								ok.callOnClick();
-						else
-							fName.setText(fn);
-					}
-				}
-			}
-		});
-		fName.addTextChangedListener(new TextWatcher() {
-			@Override
-			public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-
-			}
-
-			@Override
-			public void onTextChanged(CharSequence s, int start, int before, int count) {
-
-			}
-
-			@Override
-			public void afterTextChanged(Editable s) {
-				if (fName.getText().toString().indexOf('.') == 0) {
-					if (!showHidden) {
-						ok.setEnabled(false);
-						Toast.makeText(view.getContext(), R.string.cannot_create_hidden_files, Toast.LENGTH_SHORT).show();
-					} else ok.setEnabled(fName.getText().toString().substring(1).length() != 0);
-				} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0) {
-					ok.setEnabled(false);
-					Toast.makeText(view.getContext(), R.string.filename_cannot_begin_with, Toast.LENGTH_SHORT).show();
-				} else if (illegalFilename(fName.getText().toString())) {
-					ok.setEnabled(false);
-					Toast.makeText(view.getContext(), R.string.filename_cannot_contains, Toast.LENGTH_SHORT).show();
-				} else ok.setEnabled(fName.getText().toString().length() > 0);
-			}
-		});
-		fName.setOnEditorActionListener(new TextView.OnEditorActionListener() {
-			@Override
-			public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
-				if (ok.isEnabled())
-					if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
-						ok.performClick();
-					else
-						ok.callOnClick();
-				return true;
-			}
-		});
-	}
-
-
-	/**
-	 * Return an array contains file paths of all storage devices mounted.
+		new FileDialogController(parent, startDirectory, filename, mode, filters, filterIndex, mimes, det, showHidden, ignoreReadOnly, null, SORT_NATURAL, false, false, false).show(listener);
+	}
+
+
+	/**
+	 * Return an array contains file paths of all storage devices mounted. The volumes are probed once and cached for the whole process until a volume is mounted, unmounted or ejected, or until {@link #refreshStorage()} is called.
 	 *
 	 * @param context        The parent Context.
 	 * @param ignoreReadOnly This parameter decides whether read-only status of a device will be ignored, for example, most of systems prevents third part apps from writing to external SD cards.
 	 * @return the file [ ]
 	 */
 	public static File[] getStorage(Context context, boolean ignoreReadOnly) {
-		StorageManager storageManager = (StorageManager) context.getSystemService(Context.STORAGE_SERVICE);
-		try {
-			Method method = StorageManager.class.getDeclaredMethod(METHOD_GET_VOLUME_PATHS);
-			method.setAccessible(true);
-			Object result = method.invoke(storageManager);
-			if (result instanceof String[]) {
-				String[] pathArray = (String[]) result;
-				StatFs statFs;
-				File[] files = new File[pathArray.length];
-				int i = 0;
-				for (String path : pathArray) {
-					File file = new File(path);
-					if (!TextUtils.isEmpty(path) && file.exists()) {
-						statFs = new StatFs(path);
-						long v;
-						if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2)
-							v = statFs.getBlockCount() * statFs.getBlockSize();
-						else v = statFs.getBlockCountLong() * statFs.getBlockSizeLong();
-						if (v != 0 && (ignoreReadOnly || file.canWrite())) {
-							files[i] = file;
-							i++;
-						}
-					}
-				}
-				File[] files1 = new File[i];
-				System.arraycopy(files, 0, files1, 0, i);
-				return files1;
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-			File externalFolder = Environment.getExternalStorageDirectory();
-			if (externalFolder != null) {
-				return new File[]{externalFolder};
-			}
-		}
-		return null;
+		return FileDialogStorage.getVolumes(context, ignoreReadOnly);
+	}
+
+	/**
+	 * Return the storage volumes with their sizes. Volumes are probed in parallel, and the ones that do not answer within the timeout are returned as pending.
+	 *
+	 * @param context        The parent Context.
+	 * @param ignoreReadOnly This parameter decides whether read-only status of a device will be ignored.
+	 * @param timeoutMillis  How long to wait for slow volumes, in milliseconds.
+	 * @return the volumes, or null if they could not be listed
+	 */
+	public static FileDialogVolume[] getStorageInfo(Context context, boolean ignoreReadOnly, long timeoutMillis) {
+		return FileDialogStorage.getVolumeInfo(context, ignoreReadOnly, timeoutMillis, null);
+	}
+
+	/**
+	 * Probe the storage volumes in background. The listener is called on the main thread each time a volume answers, once more with the slow volumes marked pending when the timeout passes, and finally when every volume has answered.
+	 *
+	 * @param context        The parent Context.
+	 * @param ignoreReadOnly This parameter decides whether read-only status of a device will be ignored.
+	 * @param timeoutMillis  How long to wait before reporting slow volumes as pending, in milliseconds.
+	 * @param listener       The call back that receives the volumes.
+	 */
+	public static void getStorageAsync(Context context, boolean ignoreReadOnly, long timeoutMillis, OnStorageProbedListener listener) {
+		FileDialogStorage.getVolumeInfoAsync(context, ignoreReadOnly, timeoutMillis, listener);
+	}
+
+	/**
+	 * Drop the cached storage volumes, so that the next dialog or call to {@link #getStorage(Context, boolean)} probes them again. Mount and unmount events do this automatically.
+	 */
+	public static void refreshStorage() {
+		FileDialogStorage.invalidate();
+	}
+
+	/**
+	 * Set the memory budget of the listing cache shared by all dialogs. Listings of recently visited directories are kept until the budget is exceeded, so navigating back and forth does not rescan them. Listings hold names and attributes in arrays rather than an object per entry, so the default budget of 4 MiB holds some 60,000 entries with names of 20 chars.
+	 *
+	 * @param bytes The approximate heap the cached listings may hold. 0 disables the cache.
+	 */
+	public static void setListingCacheSize(long bytes) {
+		FileDialogCache.setMaxSize(bytes);
+	}
+
+	/**
+	 * Drop all cached listings.
+	 */
+	public static void clearListingCache() {
+		FileDialogCache.clear();
+	}
+
+	/**
+	 * Return how many listings have been served from the cache.
+	 *
+	 * @return The hit count since the process started.
+	 */
+	public static long getListingCacheHitCount() {
+		return FileDialogCache.getHitCount();
+	}
+
+	/**
+	 * Return how many listings had to be scanned because they were not cached or were outdated.
+	 *
+	 * @return The miss count since the process started.
+	 */
+	public static long getListingCacheMissCount() {
+		return FileDialogCache.getMissCount();
+	}
+
+	/**
+	 * List a directory into the listing cache in background, so that a dialog opening it later shows it at once. Call it early, for example when the app starts. The listing is only kept within the budget of the cache, and is scanned again if the directory has changed meanwhile.
+	 *
+	 * @param parent     The Context, from which only the application Context is kept.
+	 * @param key        The remember key of a {@link FileDialogController} to list the directory last left under it, or null.
+	 * @param fallback   The directory to list if nothing is remembered under the key, or null for the default SD card directory.
+	 * @param showHidden Whether the dialog that will open the directory shows hidden files.
+	 */
+	public static void prefetchListing(Context parent, String key, File fallback, boolean showHidden) {
+		FileDialogHistory.prefetch(parent, key, fallback, showHidden);
+	}
+
+	/**
+	 * Set the limits of the subtree search, started from the filter field with the search key of the keyboard. Searching stops once either limit is reached, so searches of large storage stay quick and use bounded memory.
+	 *
+	 * @param maxDepth   How many levels below the current directory to descend. The default is 32.
+	 * @param maxResults How many matches to find. The default is 2000.
+	 */
+	public static void setSearchLimits(int maxDepth, int maxResults) {
+		FileDialogSearch.setLimits(maxDepth, maxResults);
+	}
+
+	/**
+	 * Set whether the thumbnails shown by dialogs built with {@link FileDialogController.Builder#setShowThumbnails(boolean)} are also kept in the cache directory of the app, up to 16 MiB, so they are not decoded again in later sessions. The cache is shared by all dialogs of the process. The default is false.
+	 *
+	 * @param enabled Whether to keep thumbnails on disk.
+	 */
+	public static void setThumbnailDiskCacheEnabled(boolean enabled) {
+		FileDialogThumbnails.setDiskCacheEnabled(enabled);
+	}
+
+	/**
+	 * Set the listener receiving timings and counts of the work done by dialogs: probing storage, scanning, filtering and sorting directories, showing the first frame of a directory, creating and binding rows, and hits of the listing cache. While a listener is set, each phase is also marked as an android.os.Trace section named "FileDialog:" and the phase, on API 18 and up. With no listener, which is the default, nothing is measured.
+	 *
+	 * @param listener The listener, or null to stop measuring.
+	 */
+	public static void setMetricsListener(OnMetricsListener listener) {
+		FileDialogMetrics.setListener(listener);
 	}
 
 	/**
@@ -773,18 +534,4 @@ public abstract class FileDialog {
 	 */
 	public static final FileDialogFilter ALL = new FileDialogFilter("*", new String[]{"*"});
 
-	private static boolean illegalFilename(CharSequence e) {
-		String v = e.toString();
-		for (int i = 0; i < 32; i++) if (v.indexOf(i) >= 0) return true;
-		return v.indexOf('"') >= 0
-				|| v.indexOf('*') >= 0
-				|| v.indexOf('/') >= 0
-				|| v.indexOf(':') >= 0
-				|| v.indexOf('<') >= 0
-				|| v.indexOf('>') >= 0
-				|| v.indexOf('?') >= 0
-				|| v.indexOf('\\') >= 0
-				|| v.indexOf('|') >= 0
-				|| v.indexOf(127) >= 0;
-	}
 }
\ No newline at end of file
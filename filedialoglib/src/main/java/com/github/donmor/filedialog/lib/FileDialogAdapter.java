@@ -1,52 +1,136 @@
 /*
  * com.github.donmor.filedialog.lib.FileDialogAdapter <= [P|FileDialog]
- * Last modified: 15:32:28 2019/05/10
+ * Last modified: 01:52:14 2026/10/18
  * Copyright (c) 2019 donmor
  */
 
 package com.github.donmor.filedialog.lib;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
 import androidx.annotation.NonNull;
+import androidx.collection.LongSparseArray;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.ViewGroup;
-import android.webkit.MimeTypeMap;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.CompoundButton;
+import android.widget.TextView;
 
 import java.io.File;
-import java.io.FileFilter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.concurrent.Future;
 
 class FileDialogAdapter extends RecyclerView.Adapter<FileDialogAdapter.FileViewHolder> {
 
 	private File currentDir;
 	private final File rootDir;
-	private boolean[] selected;
-	private File[] files, dirs, devices;
-	private boolean enRoot;
+	private final FileDialogSelection selection;
+	private Rows files, dirs, devices;
+	// enRoot is where the user navigated to, shownRoot is what the rows currently show
+	private boolean enRoot, shownRoot, devicesProbed;
+	private int showGeneration;
+	// The rows delivered by the last scan, before the quick filter
+	private Rows listedDirs, listedFiles;
+	private boolean listedRoot, searchActive;
+	private String query = "";
+	private FileDialogQuickFilter dirMatcher, fileMatcher;
+	private Rows dirMatcherSource, fileMatcherSource;
+	private FileDialogWatcher watcher;
+	// The listing of the current directory, whose sorted files are filtered, and the rows each filter made of them so far
+	private FileDialogListing snapshot;
+	// The builder the snapshot was last edited in, which later changes are appended to
+	private FileDialogListing.Builder editor;
+	private FileDialogListing edited;
+	private Rows[] filteredRows;
+	// The order rows are shown in, and the orders of the listed dirs and of the snapshot, null while scanning
+	private int orderKey;
+	private boolean descending;
+	private FileDialogOrder dirOrder, fileOrder;
+	// Changes seen while a scan was in flight, applied once it is done
+	private final LinkedHashSet<String> deferredChanges = new LinkedHashSet<>();
 	private final boolean multiSelect, dirOnly, showHidden, ignoreReadOnly;
 	private int filterIndex;
 	private final Context context;
-	private final MimeTypeMap mimeTypeMap;
+	private final FileDialogMimeResolver.Filter[] mimeFilters;
 	final String[] mimeTypes;
 	final FileDialogFilter[] filters;
 	private final LayoutInflater inflater;
+	private final FileDialogSorter sorter;
+	private final FileDialogLoader loader, filterLoader, searchLoader, orderLoader, probeLoader, diffLoader;
+	// Null unless details are shown
+	private final FileDialogDetails details;
+	private File detailsDir;
+	// Whether the listing shown may hold sizes and dates older than the files, as one served from the cache or with files rewritten since
+	private boolean staleColumns;
+	private final Runnable filterTask = new Runnable() {
+		@Override
+		public void run() {
+			applyFilter();
+		}
+	};
+	private static final int DETAILS_PREFETCH = 8;
+	// When the current navigation started, for the first frame metric, or 0
+	private long navigateStart;
+	private RecyclerView recyclerView;
+	private final int thumbnailSize;
+	// Reads names in place while binding
+	private final FileDialogListing.Name boundName = new FileDialogListing.Name();
+
+	// Typing faster than this only filters once
+	private static final long FILTER_DELAY = 150;
+	// Changes between listings larger than this are not diffed, as diffing takes quadratic time in the worst case
+	private static final int MAX_DIFF_ROWS = 10000;
+	// Insertions scattered over more ranges than this are cheaper to show as one change
+	private static final int MAX_INSERT_RANGES = 128;
+	// Entries removed from a listing being edited are dropped once they outnumber the others by this many
+	private static final int COMPACT_SLACK = 1024;
+
+	static final int TYPE_DIR = 0, TYPE_FILE = 1, TYPE_MULTI_FILE = 2, TYPE_DEVICE = 3;
 
-	FileDialogAdapter(Context context, FileDialogFilter[] filters, int filterIndex, String[] mimeTypes, MimeTypeMap mimeTypeMap, File dir, boolean multiSelect, boolean dirOnly, boolean showHidden, boolean ignoreReadOnly) {
+	FileDialogAdapter(Context context, FileDialogFilter[] filters, int filterIndex, String[] mimeTypes, File dir, boolean multiSelect, boolean dirOnly, boolean showHidden, boolean ignoreReadOnly, int sortBy, boolean descending, boolean showDetails, boolean showThumbnails) {
 		this.context = context;
 		this.multiSelect = multiSelect;
 		this.dirOnly = dirOnly;
 		this.showHidden = showHidden;
 		this.ignoreReadOnly = ignoreReadOnly;
-		this.mimeTypeMap = mimeTypeMap;
 		this.mimeTypes = mimeTypes;
+		if (mimeTypes != null) {
+			mimeFilters = new FileDialogMimeResolver.Filter[mimeTypes.length];
+			for (int i = 0; i < mimeTypes.length; i++)
+				mimeFilters[i] = new FileDialogMimeResolver.Filter(mimeTypes[i]);
+		} else mimeFilters = null;
 		this.filters = filters;
 		this.filterIndex = filterIndex;
+		orderKey = sortBy;
+		this.descending = descending;
 		inflater = LayoutInflater.from(context);
+		sorter = newSorter();
+		loader = new FileDialogLoader();
+		filterLoader = new FileDialogLoader();
+		searchLoader = new FileDialogLoader();
+		orderLoader = new FileDialogLoader();
+		probeLoader = new FileDialogLoader();
+		diffLoader = new FileDialogLoader();
+		thumbnailSize = showThumbnails ? context.getResources().getDimensionPixelSize(R.dimen.thumbnail_size) : 0;
+		details = showDetails ? new FileDialogDetails(context, new FileDialogDetails.Listener() {
+			@Override
+			public void onDetailsLoaded(LongSparseArray<String> loaded) {
+				FileDialogAdapter.this.onDetailsLoaded(loaded);
+			}
+		}) : null;
 		try {
 			currentDir = dir;
 			if (!currentDir.isDirectory()) throw new Exception();
@@ -55,88 +139,369 @@ class FileDialogAdapter extends RecyclerView.Adapter<FileDialogAdapter.FileViewH
 		}
 		rootDir = Environment.getExternalStorageDirectory();
 		enRoot = false;
-		dirs = sortFile(getDirs());
-		if (dirOnly) files = new File[0];
-		else files = sortFile(getFiles());
-		if (files != null) selected = new boolean[files.length];
-		devices = FileDialog.getStorage(context.getApplicationContext(), ignoreReadOnly);
+		dirs = files = devices = listedDirs = listedFiles = Rows.EMPTY;
+		// Volumes probed by an earlier dialog are known at once, so the way back is right from the start
+		FileDialogVolume[] cachedVolumes = FileDialogStorage.getCachedVolumeInfo(ignoreReadOnly);
+		if (cachedVolumes != null) {
+			devices = Rows.ofVolumes(cachedVolumes, context.getString(R.string.volume_pending));
+			devicesProbed = true;
+		}
+		selection = new FileDialogSelection();
+		setHasStableIds(true);
+		load(true, true);
+	}
+
+	/**
+	 * An immutable list of rows: positions in a listing, whose names and stable ids are read on demand and whose Files are only made when asked for. Built off the main thread.
+	 */
+	static final class Rows implements FileDialogSelection.Items {
+		static final Rows EMPTY = new Rows(FileDialogListing.EMPTY, FileDialogListing.NONE);
+
+		final FileDialogListing listing;
+		/**
+		 * The positions of the rows in the listing. Shared, must not be modified.
+		 */
+		final int[] positions;
+		// Labels to display instead of the names, or null
+		private final String[] labels;
+
+		Rows(FileDialogListing listing, int[] positions) {
+			this(listing, positions, null);
+		}
+
+		private Rows(FileDialogListing listing, int[] positions, String[] labels) {
+			this.listing = listing;
+			this.positions = positions;
+			this.labels = labels;
+		}
+
+		/**
+		 * The given rows of this list.
+		 */
+		Rows subset(int[] rows) {
+			int[] positions1 = new int[rows.length];
+			String[] labels1 = labels != null ? new String[rows.length] : null;
+			for (int i = 0; i < rows.length; i++) {
+				positions1[i] = positions[rows[i]];
+				if (labels1 != null) labels1[i] = labels[rows[i]];
+			}
+			return new Rows(listing, positions1, labels1);
+		}
+
+		/**
+		 * These rows in another order.
+		 *
+		 * @param base       The positions the order was made of. These rows must be some of them, in the same order.
+		 * @param index      The indexes in base in the new order, or null for the order of base.
+		 * @param descending Whether to take the order backwards.
+		 * @return The rows reordered, or these rows if the order would not change them or they are not from base.
+		 */
+		Rows arrange(int[] base, int[] index, boolean descending) {
+			if (positions.length < 2 || index == null && !descending) return this;
+			// Row of each entry of base plus one, or 0 if it is not shown
+			int[] rowOf = new int[base.length];
+			for (int i = 0, j = 0; i < positions.length; i++, j++) {
+				while (j < base.length && base[j] != positions[i]) j++;
+				if (j == base.length) return this;
+				rowOf[j] = i + 1;
+			}
+			int[] rows = new int[positions.length];
+			int n = 0;
+			for (int k = 0; k < base.length; k++) {
+				int b = descending ? base.length - 1 - k : k;
+				int row = rowOf[index != null ? index[b] : b];
+				if (row != 0) rows[n++] = row - 1;
+			}
+			return subset(rows);
+		}
+
+		/**
+		 * Rows of files given by path, labeled as the caller likes.
+		 *
+		 * @param labels The labels to display, parallel to items.
+		 */
+		static Rows ofPaths(File[] items, String[] labels) {
+			FileDialogListing.Builder b = new FileDialogListing.Builder(null);
+			int[] positions = new int[items.length];
+			for (int i = 0; i < items.length; i++)
+				positions[i] = b.add(items[i].getPath(), false, FileDialogListing.UNKNOWN, FileDialogListing.UNKNOWN);
+			return new Rows(b.build(FileDialogListing.NONE, FileDialogListing.NONE), positions, labels);
+		}
+
+		/**
+		 * Rows of storage volumes, labeled with their paths. Volumes still probing are marked pending.
+		 *
+		 * @param pendingFormat The format of pending labels, taking the path.
+		 */
+		static Rows ofVolumes(FileDialogVolume[] volumes, String pendingFormat) {
+			File[] items = new File[volumes.length];
+			String[] names = new String[volumes.length];
+			for (int i = 0; i < volumes.length; i++) {
+				items[i] = volumes[i].path;
+				String path = items[i].getAbsolutePath();
+				names[i] = volumes[i].pending ? String.format(pendingFormat, path) : path;
+			}
+			return ofPaths(items, names);
+		}
+
+		/**
+		 * @return A quick filter over the names shown.
+		 */
+		FileDialogQuickFilter matcher() {
+			return labels != null ? new FileDialogQuickFilter(labels) : new FileDialogQuickFilter(listing, positions);
+		}
+
+		@Override
+		public int size() {
+			return positions.length;
+		}
+
+		@Override
+		public File get(int i) {
+			return listing.file(positions[i]);
+		}
+
+		@Override
+		public long getId(int i) {
+			return listing.id(positions[i]);
+		}
+
+		/**
+		 * Show the name of a row, read in place from the listing.
+		 */
+		void showName(TextView view, int i) {
+			if (labels != null) view.setText(labels[i]);
+			else {
+				int p = positions[i];
+				view.setText(listing.nameBuffer(), listing.nameStart(p), listing.nameLength(p));
+			}
+		}
+
+		File[] toFiles() {
+			return listing.toFiles(positions);
+		}
 	}
 
-	class FileViewHolder extends RecyclerView.ViewHolder {
+	class FileViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener, View.OnLongClickListener, CompoundButton.OnCheckedChangeListener {
 		private final Button cbD, cbF, cbR;
 		private final CheckBox cbMF;
+		private final TextView lblDetails;
+		// The button of the row type, the only one visible
+		private final Button button;
+		private boolean binding;
+		// The id of the row bound, for details loaded later, valid while details are shown
+		private long detailsId;
+		private boolean detailsShown;
+		// The row the details are of, to ask for them again
+		private Rows detailsRows;
+		private int detailsIndex;
+		// The icon of the row type, shown while there is no thumbnail
+		private final Drawable icon;
+		private File thumbnailFile;
+		private Future<?> thumbnailTask;
 
-		FileViewHolder(View itemView) {
+		FileViewHolder(View itemView, int viewType) {
 			super(itemView);
 			cbD = itemView.findViewById(R.id.c_buttonD);
 			cbF = itemView.findViewById(R.id.c_buttonF);
 			cbMF = itemView.findViewById(R.id.c_buttonMF);
 			cbR = itemView.findViewById(R.id.c_buttonR);
+			lblDetails = itemView.findViewById(R.id.lblDetails);
+			// A holder is only ever bound to rows of its own type, so the visible button and its listener are fixed
+			switch (viewType) {
+				case TYPE_DIR:
+					button = cbD;
+					break;
+				case TYPE_MULTI_FILE:
+					button = cbMF;
+					break;
+				case TYPE_DEVICE:
+					button = cbR;
+					break;
+				default:
+					button = cbF;
+					break;
+			}
+			button.setVisibility(View.VISIBLE);
+			icon = thumbnailSize > 0 ? (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1 ? button.getCompoundDrawablesRelative() : button.getCompoundDrawables())[0] : null;
+			if (viewType == TYPE_MULTI_FILE) {
+				cbMF.setOnCheckedChangeListener(this);
+				cbMF.setOnLongClickListener(this);
+			} else button.setOnClickListener(this);
+		}
+
+		void bind(Rows rows, int i, boolean checked) {
+			binding = true;
+			rows.showName(button, i);
+			if (button == cbMF) cbMF.setChecked(checked);
+			binding = false;
+		}
+
+		/**
+		 * Show the thumbnail of a file, from memory if it is there, otherwise once it is made.
+		 *
+		 * @param f        The file, or null to show the icon.
+		 * @param modified The modification time of the file, or {@link FileDialogListing#UNKNOWN} if the listing may be out of date.
+		 * @param length   The size of the file.
+		 */
+		void bindThumbnail(File f, long modified, long length) {
+			cancelThumbnail();
+			thumbnailFile = f;
+			Bitmap b = f != null ? FileDialogThumbnails.getCached(f, modified, length) : null;
+			setIcon(b != null ? new BitmapDrawable(context.getResources(), b) : icon);
+			if (f == null || b != null) return;
+			thumbnailTask = FileDialogThumbnails.load(context, f, thumbnailSize, modified, length, new FileDialogThumbnails.Callback() {
+				@Override
+				public void onThumbnail(File file, Bitmap thumbnail) {
+					if (file != thumbnailFile) return;
+					thumbnailTask = null;
+					if (thumbnail != null) setIcon(new BitmapDrawable(context.getResources(), thumbnail));
+				}
+			});
+		}
+
+		void cancelThumbnail() {
+			thumbnailFile = null;
+			if (thumbnailTask != null) {
+				thumbnailTask.cancel(true);
+				thumbnailTask = null;
+			}
+		}
+
+		private void setIcon(Drawable d) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1)
+				button.setCompoundDrawablesRelativeWithIntrinsicBounds(d, null, null, null);
+			else button.setCompoundDrawablesWithIntrinsicBounds(d, null, null, null);
+		}
+
+		/**
+		 * @param shown Whether the row has details.
+		 */
+		void bindDetails(boolean shown, long id, String text) {
+			detailsShown = shown;
+			detailsId = id;
+			lblDetails.setVisibility(shown ? View.VISIBLE : View.GONE);
+			lblDetails.setText(text);
+		}
+
+		@Override
+		public void onClick(View v) {
+			// Diffed updates move rows without rebinding them, so resolve the position on click
+			int p = getBindingAdapterPosition();
+			if (p != RecyclerView.NO_POSITION && mItemClickListener != null) mItemClickListener.onItemClick(p);
+		}
+
+		@Override
+		public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+			if (binding) return;
+			int p = getBindingAdapterPosition();
+			if (p == RecyclerView.NO_POSITION) return;
+			selection.set(p - dirs.size(), isChecked);
+			if (mItemClickListener != null) mItemClickListener.onItemClick(p);
+		}
+
+		@Override
+		public boolean onLongClick(View v) {
+			// Long press selects every file from the row toggled last
+			int p = getBindingAdapterPosition();
+			if (p == RecyclerView.NO_POSITION) return false;
+			selection.selectRange(p - dirs.size());
+			notifyFilesChanged();
+			if (mItemClickListener != null) mItemClickListener.onItemClick(p);
+			return true;
 		}
 	}
 
 	@Override
 	@NonNull
 	public FileViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-		return new FileViewHolder(inflater.inflate(R.layout.file_slot, parent, false));
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_INFLATE_ROW);
+		FileViewHolder holder = new FileViewHolder(inflater.inflate(R.layout.file_slot, parent, false), viewType);
+		FileDialogMetrics.end(FileDialog.METRIC_INFLATE_ROW, t, 1);
+		return holder;
 	}
 
 	@Override
 	public void onBindViewHolder(@NonNull FileViewHolder holder, int position) {
-		final int pos = position;
-		if (enRoot) {
-			holder.cbR.setText(devices[pos].getAbsolutePath());
-			holder.cbR.setVisibility(View.VISIBLE);
-		} else {
-			if (pos < dirs.length) {
-				{
-					holder.cbD.setText(dirs[pos].getName());
-					holder.cbD.setVisibility(View.VISIBLE);
-				}
-			} else if (pos < dirs.length + files.length) {
-				if (multiSelect) {
-					holder.cbMF.setText(files[pos - dirs.length].getName());
-					holder.cbMF.setChecked(false);
-					holder.cbMF.setVisibility(View.VISIBLE);
-				} else {
-					holder.cbF.setText(files[pos - dirs.length].getName());
-					holder.cbF.setVisibility(View.VISIBLE);
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_BIND_ROW);
+		bind(holder, position);
+		FileDialogMetrics.end(FileDialog.METRIC_BIND_ROW, t, 1);
+	}
+
+	private void bind(FileViewHolder holder, int position) {
+		boolean isDir = position < dirs.size();
+		Rows rows = isDir ? dirs : files;
+		int i = isDir ? position : position - dirs.size();
+		holder.bind(rows, i, !isDir && selection.isSelected(i));
+		if (thumbnailSize > 0) {
+			// Only rows that may have a thumbnail make a File, to look it up
+			int pos = rows.positions[i];
+			boolean supported = !isDir && !shownRoot && FileDialogThumbnails.isSupported(boundName.set(rows.listing, pos));
+			// Thumbnails are kept by modification time and size, which only a listing just scanned has current
+			holder.bindThumbnail(supported ? rows.get(i) : null, staleColumns ? FileDialogListing.UNKNOWN : rows.listing.time(pos), rows.listing.size(pos));
+		}
+		if (details != null) {
+			if (shownRoot) holder.bindDetails(false, 0, null);
+			else {
+				long id = rows.getId(i);
+				holder.detailsRows = rows;
+				holder.detailsIndex = i;
+				holder.bindDetails(true, id, details.get(rows.listing, rows.positions[i], id));
+				// Rows just below are likely to be shown next
+				int end = Math.min(getItemCount(), position + 1 + DETAILS_PREFETCH);
+				for (int p = position + 1; p < end; p++) {
+					Rows r = p < dirs.size() ? dirs : files;
+					details.prefetch(r.listing, r.positions[p < dirs.size() ? p : p - dirs.size()]);
 				}
 			}
 		}
-		View.OnClickListener ocl = new View.OnClickListener() {
-			@Override
-			public void onClick(View v) {
-				mItemClickListener.onItemClick(pos);
-			}
-		};
-		CompoundButton.OnCheckedChangeListener orl = new CompoundButton.OnCheckedChangeListener() {
-			@Override
-			public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-				selected[pos - dirs.length] = isChecked;
-				mItemClickListener.onItemClick(pos);
-			}
-		};
-		holder.cbD.setOnClickListener(ocl);
-		holder.cbF.setOnClickListener(ocl);
-		holder.cbMF.setOnCheckedChangeListener(orl);
-		holder.cbR.setOnClickListener(ocl);
 	}
 
 	@Override
-	public int getItemCount() {
-		if (enRoot) return devices.length;
-		else {
-			int d = 0, f = 0;
-			if (dirs != null) d = dirs.length;
-			if (files != null) f = files.length;
-			return d + f;
+	public void onViewRecycled(@NonNull FileViewHolder holder) {
+		// Rows flung past stop decoding
+		if (thumbnailSize > 0) holder.cancelThumbnail();
+	}
+
+	@Override
+	public void onViewAttachedToWindow(@NonNull FileViewHolder holder) {
+		// Rows set aside while scrolled out come back without being bound again, and may have missed their details
+		if (details == null || !holder.detailsShown) return;
+		String text = details.getLoaded(holder.detailsId);
+		// Details dropped meanwhile, as those of a file rewritten, are asked for again
+		if (text == null) text = details.get(holder.detailsRows.listing, holder.detailsRows.positions[holder.detailsIndex], holder.detailsId);
+		if (text != null) holder.bindDetails(true, holder.detailsId, text);
+	}
+
+	/**
+	 * Show details as they are loaded, on the rows on screen still bound to their entries.
+	 */
+	private void onDetailsLoaded(LongSparseArray<String> loaded) {
+		RecyclerView view = recyclerView;
+		if (view == null) return;
+		for (int i = 0, n = view.getChildCount(); i < n; i++) {
+			FileViewHolder holder = (FileViewHolder) view.getChildViewHolder(view.getChildAt(i));
+			String text = holder.detailsShown ? loaded.get(holder.detailsId) : null;
+			if (text != null) holder.bindDetails(true, holder.detailsId, text);
 		}
 	}
 
+	@Override
+	public int getItemCount() {
+		return dirs.size() + files.size();
+	}
+
 	@Override
 	public int getItemViewType(int position) {
-		return position;
+		if (shownRoot) return TYPE_DEVICE;
+		else if (position < dirs.size()) return TYPE_DIR;
+		else return multiSelect ? TYPE_MULTI_FILE : TYPE_FILE;
+	}
+
+	@Override
+	public long getItemId(int position) {
+		if (position < dirs.size()) return dirs.getId(position);
+		else return files.getId(position - dirs.size());
 	}
 
 	private ItemClickListener mItemClickListener;
@@ -150,92 +515,1021 @@ class FileDialogAdapter extends RecyclerView.Adapter<FileDialogAdapter.FileViewH
 
 	}
 
-	private File[] getDirs() {
-		return currentDir.listFiles(new FileFilter() {
+	private LoadListener mLoadListener;
+
+	/**
+	 * Notified on the main thread when a listing starts and finishes loading.
+	 */
+	public interface LoadListener {
+		void onLoadStarted();
+
+		void onLoadFinished();
+	}
+
+	void setOnLoadListener(LoadListener loadListener) {
+		this.mLoadListener = loadListener;
+		if (loadListener != null)
+			if (loader.isLoading()) loadListener.onLoadStarted();
+			else loadListener.onLoadFinished();
+	}
+
+	boolean isLoading() {
+		return loader.isLoading() || searchLoader.isLoading();
+	}
+
+	private static final class Listing {
+		Rows dirs, files;
+		FileDialogListing listing;
+		FileDialogOrder dirOrder, fileOrder;
+		// Served from the cache, to be checked against the disk
+		boolean cached;
+	}
+
+	/**
+	 * Scan the current directory (or volumes) in background. Any scan in flight is canceled.
+	 *
+	 * @param clear        Drop the rows shown so far instead of keeping them until the new listing arrives.
+	 * @param probeDevices Also probe storage volumes.
+	 */
+	private void load(boolean clear, boolean probeDevices) {
+		final File dir = currentDir;
+		final boolean root = enRoot;
+		final int index = filterIndex, key = orderKey;
+		// The probe runs beside the scan, so a volume slow to answer never delays the listing
+		if (probeDevices || !devicesProbed && !probeLoader.isLoading()) probeDevices();
+		if (clear) {
+			// A navigation superseded before its first frame is not reported
+			FileDialogMetrics.endAsync(FileDialog.METRIC_FIRST_FRAME, navigateStart, -1);
+			navigateStart = FileDialogMetrics.beginAsync(FileDialog.METRIC_FIRST_FRAME);
+			show(root, Rows.EMPTY, Rows.EMPTY);
+		}
+		snapshot = null;
+		editor = null;
+		edited = null;
+		dirOrder = fileOrder = null;
+		if (details != null && !dir.equals(detailsDir)) {
+			details.clear();
+			detailsDir = dir;
+		}
+		// Watch before scanning, so that nothing changed in between goes unnoticed
+		watch(root ? null : dir);
+		loader.load(new FileDialogLoader.Job<Listing>() {
+			@Override
+			public Listing run() {
+				Listing l = new Listing();
+				if (!root) {
+					FileDialogCache.Entry e = list(dir, index, l, this);
+					if (e == null) return l;
+					l.listing = e.getListing(dirOnly ? null : sorter);
+					l.dirs = new Rows(l.listing, l.listing.dirs);
+					l.files = dirOnly ? Rows.EMPTY : new Rows(l.listing, filterFiles(l.listing, l.listing.files, index));
+					l.dirOrder = e.getDirOrder();
+					l.fileOrder = dirOnly ? null : e.getFileOrder(sorter);
+					makeOrder(l.dirOrder, key);
+					makeOrder(l.fileOrder, key);
+				}
+				return l;
+			}
+		}, new FileDialogLoader.Callback<Listing>() {
 			@Override
-			public boolean accept(File pathname) {
-				return (!pathname.isHidden() || showHidden) && pathname.isDirectory();
+			public void onLoaded(Listing result) {
+				if (root) show(true, devices, Rows.EMPTY);
+				else if (result != null && result.dirs != null) {
+					setSnapshot(result.listing, index, result.files);
+					dirOrder = result.dirOrder;
+					fileOrder = result.fileOrder;
+					show(false, result.dirs, result.files);
+					// The order was switched while loading
+					if (key != orderKey) prepareOrder();
+					// Files rewritten in place leave the modification time of the directory, which validates the cache, alone
+					if (details != null) details.setVerify(result.cached);
+					staleColumns = result.cached;
+				} else show(false, Rows.EMPTY, Rows.EMPTY);
+				// Listings with rows are reported when they are swapped in
+				if (listedDirs.size() + listedFiles.size() == 0) frameShown(0);
+				if (mLoadListener != null) mLoadListener.onLoadFinished();
+				applyDeferredChanges();
 			}
 		});
+		if (mLoadListener != null) mLoadListener.onLoadStarted();
 	}
 
-	private File[] getFiles() {
-		return currentDir.listFiles(new FileFilter() {
+	/**
+	 * Probe storage volumes in background, canceling a probe in flight. Volumes show up as they answer, including the slow ones that answer after the timeout.
+	 */
+	private void probeDevices() {
+		final Context appContext = context.getApplicationContext();
+		final String pendingFormat = context.getString(R.string.volume_pending);
+		probeLoader.load(new FileDialogLoader.Job<Rows>() {
 			@Override
-			public boolean accept(File pathname) {
-				if (mimeTypes != null)
-					if ((!pathname.isHidden() || showHidden) && pathname.isFile())
-						if (mimeTypes[filterIndex].equals(FileDialog.MIME_ALL)) return true;
-						else
-							return mimeTypes[filterIndex].equals(mimeTypeMap.getMimeTypeFromExtension(MimeTypeMap.getFileExtensionFromUrl(pathname.getName())));
-					else return false;
-				else
-					return (!pathname.isHidden() || showHidden) && pathname.isFile() && filters[filterIndex].meetExtensions(pathname.getName());
+			public Rows run() {
+				FileDialogVolume[] v = FileDialogStorage.getVolumeInfo(appContext, ignoreReadOnly, FileDialogStorage.DEFAULT_TIMEOUT, new FileDialogStorage.ProbeListener() {
+					@Override
+					public void onProbed(FileDialogVolume[] volumes, boolean finished) {
+						final Rows r = Rows.ofVolumes(volumes, pendingFormat);
+						publish(new Runnable() {
+							@Override
+							public void run() {
+								showDevices(r);
+							}
+						});
+					}
+				});
+				return v != null ? Rows.ofVolumes(v, pendingFormat) : null;
+			}
+		}, new FileDialogLoader.Callback<Rows>() {
+			@Override
+			public void onLoaded(Rows result) {
+				if (result != null) showDevices(result);
+				// The way back depends on the volumes, so report them unless a scan is still going
+				if (mLoadListener != null && !isLoading()) mLoadListener.onLoadFinished();
 			}
 		});
 	}
 
-	private File[] sortFile(File[] src) {
-		if (src == null || src.length == 0) return src;
-		for (int i = 0; i < src.length; i++) {
-			for (int j = 0; j < src.length - i - 1; j++) {
-				if (chrSort(src[j + 1].getName(), src[j].getName())) {
-					File temp = src[j + 1];
-					src[j + 1] = src[j];
-					src[j] = temp;
+	/**
+	 * Show volumes as their probes finish.
+	 */
+	private void showDevices(Rows r) {
+		devices = r;
+		devicesProbed = true;
+		if (enRoot && listedRoot) show(true, devices, Rows.EMPTY);
+	}
+
+	/**
+	 * Stop any scan in flight. Called when the dialog goes away.
+	 */
+	void cancelLoading() {
+		watch(null);
+		loader.cancel();
+		filterLoader.cancel();
+		searchLoader.cancel();
+		orderLoader.cancel();
+		probeLoader.cancel();
+		diffLoader.cancel();
+		FileDialogLoader.getMainHandler().removeCallbacks(filterTask);
+	}
+
+	/**
+	 * @return A sorter in the order dialogs list entries, which is the order listings are cached in.
+	 */
+	static FileDialogSorter newSorter() {
+		return new FileDialogSorter(true, Locale.getDefault());
+	}
+
+	/**
+	 * Watch a directory, and stop watching the previous one.
+	 *
+	 * @param dir The directory, or null to stop watching.
+	 */
+	private void watch(File dir) {
+		if (watcher != null) {
+			if (watcher.dir.equals(dir)) return;
+			watcher.stop();
+			watcher = null;
+		}
+		deferredChanges.clear();
+		if (dir == null) return;
+		watcher = new FileDialogWatcher(dir, new FileDialogWatcher.Listener() {
+			@Override
+			public void onChanged(String[] names) {
+				applyChanges(names);
+			}
+
+			@Override
+			public void onModified(String[] names) {
+				applyModified(names);
+			}
+
+			@Override
+			public void onInvalidated() {
+				reload();
+			}
+		});
+		watcher.start();
+	}
+
+	/**
+	 * Show again the details and thumbnails of entries rewritten or touched in place. Which entries there are did not change, so the rows are only bound again; orders by size or date are left as they are until the next scan.
+	 *
+	 * @param names The names of the entries, or null if they are too many to tell apart.
+	 */
+	private void applyModified(String[] names) {
+		final File dir = currentDir;
+		// The cached listing holds the old attributes, as the one shown does
+		FileDialogCache.remove(dir);
+		staleColumns = true;
+		if (enRoot || details == null && thumbnailSize == 0) return;
+		LongSparseArray<Boolean> ids = null;
+		if (names == null) {
+			if (details != null) details.refreshAll();
+		} else {
+			ids = new LongSparseArray<>();
+			for (String name : names) {
+				File file = new File(dir, name);
+				long id = FileDialogListing.id(file.getPath());
+				ids.put(id, Boolean.TRUE);
+				if (details != null) details.refresh(id);
+			}
+		}
+		RecyclerView view = recyclerView;
+		if (view == null) return;
+		for (int i = 0, n = view.getChildCount(); i < n; i++) {
+			int p = view.getChildViewHolder(view.getChildAt(i)).getBindingAdapterPosition();
+			if (p != RecyclerView.NO_POSITION && (ids == null || ids.get(getItemId(p)) != null)) notifyItemChanged(p);
+		}
+	}
+
+	private void applyDeferredChanges() {
+		if (deferredChanges.size() > FileDialogWatcher.MAX_CHANGES) {
+			deferredChanges.clear();
+			reload();
+		} else if (!deferredChanges.isEmpty()) {
+			String[] names = deferredChanges.toArray(new String[deferredChanges.size()]);
+			deferredChanges.clear();
+			applyChanges(names);
+		}
+	}
+
+	/**
+	 * Apply changed entries of the current directory to the sorted listing. Every change is one removal and/or one insertion found by binary search, done on a loader thread, in the rows and in every order made so far. New entries are appended to the builder of the listing, so its entries are never copied, and the positions of the rows are kept; entries removed are left in place until they outnumber the others by {@link #COMPACT_SLACK}, and the listing is only compacted then. When the listing is shown unfiltered the changes are dispatched as single-row notifications.
+	 *
+	 * @param names The names of the changed entries.
+	 */
+	private void applyChanges(final String[] names) {
+		if (loader.isLoading()) {
+			// Past the limit the set only records that a rescan is due
+			if (deferredChanges.size() <= FileDialogWatcher.MAX_CHANGES) Collections.addAll(deferredChanges, names);
+			return;
+		}
+		final FileDialogListing old = snapshot;
+		if (old == null) {
+			// Nothing was listed, as the directory could not be read
+			reload();
+			return;
+		}
+		final Rows oldDirs = listedDirs, oldFiles = listedFiles;
+		final File dir = currentDir;
+		final int index = filterIndex, key = orderKey;
+		final FileDialogOrder oldDirOrder = dirOrder, oldFileOrder = fileOrder;
+		final FileDialogListing.Builder oldEditor = edited == old ? editor : null;
+		final Handler handler = FileDialogLoader.getMainHandler();
+		FileDialogLoader.getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				// The first change copies the listing once, later ones append to the same builder
+				FileDialogListing.Builder b = oldEditor != null ? oldEditor : old.toBuilder();
+				final FileDialogListing.Builder newEditor;
+				final FileDialogListing newListing;
+				final FileDialogOrder newDirOrder, newFileOrder;
+				final Rows newDirs, newFiles;
+				final int[] ops = new int[names.length * 2];
+				final int count;
+				boolean dirsChanged = false, rawChanged = false;
+				int[] newDirPositions, newRawPositions, newFilePositions;
+				// Changes applied at the same time append to the same builder
+				synchronized (b) {
+					SortedPositions d = new SortedPositions(b, oldDirs.positions), f = new SortedPositions(b, oldFiles.positions), raw = new SortedPositions(b, rawFiles(old));
+					// Row positions, negated for removals and offset by one so that 0 stays signed
+					int n = 0;
+					for (String name : names) {
+						int i = sorter.binarySearch(d, name);
+						if (i >= 0) {
+							d.remove(i);
+							ops[n++] = -(i + 1);
+							dirsChanged = true;
+						} else if ((i = sorter.binarySearch(f, name)) >= 0) {
+							f.remove(i);
+							ops[n++] = -(d.size() + i + 1);
+						}
+						if ((i = sorter.binarySearch(raw, name)) >= 0) {
+							raw.remove(i);
+							rawChanged = true;
+						}
+						if (!showHidden && FileDialogScanner.isHidden(name)) continue;
+						int p = FileDialogScanner.add(b, dir, name);
+						if (p < 0) continue;
+						boolean isDir = b.isDir(p);
+						if (!dirOnly && !isDir) {
+							raw.add(-sorter.binarySearch(raw, name) - 1, p);
+							rawChanged = true;
+						}
+						if (isDir) {
+							i = -sorter.binarySearch(d, name) - 1;
+							d.add(i, p);
+							ops[n++] = i + 1;
+							dirsChanged = true;
+						} else if (!dirOnly && (mimeTypes == null && filters == null || meetFilter(name, index))) {
+							i = -sorter.binarySearch(f, name) - 1;
+							f.add(i, p);
+							ops[n++] = d.size() + i + 1;
+						}
+					}
+					if (n == 0 && !rawChanged) return;
+					count = n;
+					newDirPositions = d.toArray();
+					newRawPositions = raw.toArray();
+					newFilePositions = f.toArray();
+					FileDialogListing l = b.snapshot(newDirPositions, newRawPositions);
+					// The orders made so far are updated with the entries removed and added, without sorting again
+					FileDialogOrder dirOrder1 = oldDirOrder == null ? null : dirsChanged ? oldDirOrder.edit(l, newDirPositions) : oldDirOrder.moveTo(l, newDirPositions);
+					FileDialogOrder fileOrder1 = oldFileOrder == null ? null : rawChanged ? oldFileOrder.edit(l, newRawPositions) : oldFileOrder.moveTo(l, newRawPositions);
+					int live = newDirPositions.length + newRawPositions.length;
+					if (b.count() - live > live + COMPACT_SLACK) {
+						// Too many entries removed: copy the others into a builder of their own
+						FileDialogListing.Builder c = new FileDialogListing.Builder(dir);
+						int[] map = new int[b.count()];
+						newDirPositions = compact(l, newDirPositions, c, map);
+						newRawPositions = compact(l, newRawPositions, c, map);
+						for (int i = 0; i < newFilePositions.length; i++)
+							newFilePositions[i] = map[newFilePositions[i]];
+						b = c;
+						l = b.snapshot(newDirPositions, newRawPositions);
+						if (dirOrder1 != null) dirOrder1 = dirOrder1.moveTo(l, newDirPositions);
+						if (fileOrder1 != null) fileOrder1 = fileOrder1.moveTo(l, newRawPositions);
+					}
+					newEditor = b;
+					newListing = l;
+					newDirOrder = dirOrder1;
+					newFileOrder = fileOrder1;
 				}
+				newDirs = new Rows(newListing, newDirPositions);
+				newFiles = new Rows(newListing, newFilePositions);
+				makeOrder(newDirOrder, key);
+				makeOrder(newFileOrder, key);
+				handler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (watcher == null || !watcher.dir.equals(dir) || enRoot) return;
+						// The listing was replaced meanwhile, start over from the new one
+						if (listedDirs != oldDirs || listedFiles != oldFiles || snapshot != old) {
+							applyChanges(names);
+							return;
+						}
+						// The rows of other filters are outdated now, and will be made again from the new snapshot
+						setSnapshot(newListing, index, newFiles);
+						editor = newEditor;
+						edited = newListing;
+						dirOrder = newDirOrder;
+						fileOrder = newFileOrder;
+						if (details != null)
+							for (String name : names)
+								details.invalidate(FileDialogListing.id(new File(dir, name).getPath()));
+						if (!searchActive && query.length() == 0 && !shownRoot && dirs == oldDirs && files == oldFiles) {
+							showGeneration++;
+							diffLoader.cancel();
+							listedDirs = dirs = newDirs;
+							listedFiles = files = newFiles;
+							if (multiSelect) selection.attach(newFiles);
+							for (int i = 0; i < count; i++)
+								if (ops[i] < 0) notifyItemRemoved(-ops[i] - 1);
+								else notifyItemInserted(ops[i] - 1);
+						} else show(false, newDirs, newFiles);
+						if (key != orderKey) prepareOrder();
+					}
+				});
 			}
+		});
+	}
+
+	/**
+	 * Copy entries of a listing into a builder, recording where each went.
+	 *
+	 * @return The positions of the entries in the builder.
+	 */
+	private static int[] compact(FileDialogListing from, int[] positions, FileDialogListing.Builder to, int[] map) {
+		int[] out = new int[positions.length];
+		for (int i = 0; i < out.length; i++)
+			out[i] = map[positions[i]] = to.add(from, positions[i]);
+		return out;
+	}
+
+	/**
+	 * Positions of a listing being edited, kept in name order.
+	 */
+	private static final class SortedPositions implements FileDialogSorter.Names {
+		private final FileDialogListing.Builder entries;
+		private int[] positions;
+		private int size;
+
+		SortedPositions(FileDialogListing.Builder entries, int[] positions) {
+			this.entries = entries;
+			this.positions = Arrays.copyOf(positions, positions.length + 16);
+			size = positions.length;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public String get(int i) {
+			return entries.name(positions[i]);
+		}
+
+		void add(int i, int p) {
+			if (size == positions.length) positions = Arrays.copyOf(positions, size * 2 + 16);
+			System.arraycopy(positions, i, positions, i + 1, size - i);
+			positions[i] = p;
+			size++;
+		}
+
+		void remove(int i) {
+			System.arraycopy(positions, i + 1, positions, i, size - i - 1);
+			size--;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(positions, size);
 		}
-		return src;
 	}
 
-	private boolean chrSort(String s1, String s2) {
-		char[] sa1 = s1.toLowerCase().toCharArray();
-		char[] sa2 = s2.toLowerCase().toCharArray();
-		for (int i = 0; i < Math.min(sa1.length, sa2.length); i++) {
-			if (sa1[i] < sa2[i]) return true;
-			else if (sa1[i] > sa2[i]) return false;
+	/**
+	 * Get the sorted listing of a directory from the cache, or scan it on a miss. While scanning, the entries read so far are published to the adapter page by page, already sorted. Runs on a loader thread.
+	 *
+	 * @param result Marked if the listing came from the cache.
+	 */
+	private FileDialogCache.Entry list(File dir, final int filterIndex, Listing result, final FileDialogLoader.Job<?> job) {
+		long lastModified = dir.lastModified();
+		FileDialogCache.Entry e = FileDialogCache.get(dir, showHidden, lastModified);
+		if (e != null) {
+			FileDialogMetrics.count(FileDialog.METRIC_CACHE_HIT, e.count());
+			result.cached = true;
+			return e;
 		}
-		return false;
+		FileDialogMetrics.count(FileDialog.METRIC_CACHE_MISS, 1);
+		final FileDialogSorter.Accumulator sortedDirs = sorter.accumulator(), sortedFiles = dirOnly ? null : sorter.accumulator();
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_SCAN);
+		FileDialogListing.Builder b = null;
+		try {
+			b = FileDialogScanner.scan(dir, showHidden, new FileDialogScanner.PageListener() {
+				@Override
+				public void onPage(FileDialogListing.Builder entries, int from, boolean last) {
+					long sortStart = FileDialogMetrics.begin(FileDialog.METRIC_SORT);
+					int[] d = entries.positions(true, from), f = sortedFiles != null ? entries.positions(false, from) : FileDialogListing.NONE;
+					sortedDirs.add(entries.names(d), d);
+					if (sortedFiles != null) sortedFiles.add(entries.names(f), f);
+					FileDialogMetrics.end(FileDialog.METRIC_SORT, sortStart, d.length + f.length);
+					if (last) return;
+					// The page shares the arrays of the scan, which only ever appends past it
+					FileDialogListing page = entries.snapshot(sortedDirs.toPositions(), sortedFiles != null ? sortedFiles.toPositions() : FileDialogListing.NONE);
+					final Rows pageDirs = new Rows(page, page.dirs), pageFiles = sortedFiles != null ? new Rows(page, filterFiles(page, page.files, filterIndex)) : Rows.EMPTY;
+					job.publish(new Runnable() {
+						@Override
+						public void run() {
+							showPage(pageDirs, pageFiles);
+						}
+					});
+				}
+			});
+		} finally {
+			FileDialogMetrics.end(FileDialog.METRIC_SCAN, t, b != null ? b.count() : -1);
+		}
+		if (b == null) return null;
+		return FileDialogCache.put(dir, showHidden, lastModified, b.build(sortedDirs.toPositions(), sortedFiles != null ? sortedFiles.toPositions() : null), !dirOnly);
+	}
+
+	/**
+	 * Show a partial listing while the scan goes on.
+	 */
+	private void showPage(Rows pageDirs, Rows pageFiles) {
+		show(false, pageDirs, pageFiles);
+	}
+
+	/**
+	 * Replace the listing, and show it through the quick filter if one is set.
+	 */
+	private void show(boolean root, Rows newDirs, Rows newFiles) {
+		listedRoot = root;
+		listedDirs = newDirs;
+		listedFiles = newFiles;
+		if (searchActive) return;
+		if (query.length() == 0) display(root, newDirs, newFiles, true);
+		else applyFilter();
+	}
+
+	/**
+	 * Narrow the listing to the names matching a query. Matching runs in background once typing pauses; the rows on screen are replaced in one step when it is done.
+	 *
+	 * @param q The text typed, or an empty string to show the whole listing.
+	 */
+	void setQuery(String q) {
+		if (searchActive) endSearch();
+		else if (q.equals(query)) return;
+		query = q;
+		Handler handler = FileDialogLoader.getMainHandler();
+		handler.removeCallbacks(filterTask);
+		if (q.length() == 0) {
+			filterLoader.cancel();
+			display(listedRoot, listedDirs, listedFiles, false);
+		} else handler.postDelayed(filterTask, FILTER_DELAY);
+	}
+
+	String getQuery() {
+		return query;
+	}
+
+	private static final class Filtered {
+		FileDialogQuickFilter dirMatcher, fileMatcher;
+		Rows dirs, files;
+	}
+
+	private void applyFilter() {
+		FileDialogLoader.getMainHandler().removeCallbacks(filterTask);
+		final String q = query;
+		final boolean root = listedRoot;
+		final Rows d = listedDirs, f = listedFiles;
+		// Matchers keep the results of earlier queries, as long as the listing is the same
+		final FileDialogQuickFilter dm = d == dirMatcherSource ? dirMatcher : null, fm = f == fileMatcherSource ? fileMatcher : null;
+		filterLoader.load(new FileDialogLoader.Job<Filtered>() {
+			@Override
+			public Filtered run() {
+				Filtered r = new Filtered();
+				long t = FileDialogMetrics.begin(FileDialog.METRIC_FILTER);
+				try {
+					r.dirMatcher = dm != null ? dm : d.matcher();
+					r.fileMatcher = fm != null ? fm : f.matcher();
+					r.dirs = d.subset(r.dirMatcher.filter(q));
+					r.files = f.subset(r.fileMatcher.filter(q));
+				} finally {
+					FileDialogMetrics.end(FileDialog.METRIC_FILTER, t, r.files != null ? d.size() + f.size() : -1);
+				}
+				return r;
+			}
+		}, new FileDialogLoader.Callback<Filtered>() {
+			@Override
+			public void onLoaded(Filtered result) {
+				if (result == null) return;
+				dirMatcher = result.dirMatcher;
+				dirMatcherSource = d;
+				fileMatcher = result.fileMatcher;
+				fileMatcherSource = f;
+				display(root, result.dirs, result.files, false);
+			}
+		});
+	}
+
+	private void resetQuery() {
+		query = "";
+		searchActive = false;
+		filterLoader.cancel();
+		searchLoader.cancel();
+		FileDialogLoader.getMainHandler().removeCallbacks(filterTask);
+	}
+
+	/**
+	 * Search the subtree of the current directory for names containing a query, applying the file type filter. Matches replace the rows as they are found, labeled with their paths below the current directory, until the query is edited or another directory is opened.
+	 *
+	 * @param q The text names must contain, or an empty string to list every file of the type.
+	 */
+	void search(final String q) {
+		if (enRoot) return;
+		FileDialogLoader.getMainHandler().removeCallbacks(filterTask);
+		filterLoader.cancel();
+		query = q;
+		searchActive = true;
+		display(false, Rows.EMPTY, Rows.EMPTY, false);
+		final File dir = currentDir;
+		final int index = filterIndex;
+		searchLoader.load(new FileDialogLoader.Job<Void>() {
+			@Override
+			public Void run() {
+				final FileDialogSorter.Accumulator sortedDirs = sorter.accumulator(), sortedFiles = sorter.accumulator();
+				final String prefix = dir.getAbsolutePath() + '/';
+				FileDialogSearch.FileMatcher matcher = mimeTypes == null && filters == null ? null : new FileDialogSearch.FileMatcher() {
+					@Override
+					public boolean accept(String name) {
+						return meetFilter(name, index);
+					}
+				};
+				new FileDialogSearch(dir, q, showHidden, dirOnly, matcher).run(new FileDialogSearch.ResultListener() {
+					@Override
+					public void onResults(File[] d, File[] f, boolean last) {
+						if (d.length + f.length == 0) return;
+						sortedDirs.add(d);
+						sortedFiles.add(f);
+						final Rows pageDirs = searchRows(sortedDirs.toArray(), prefix), pageFiles = searchRows(sortedFiles.toArray(), prefix);
+						publish(new Runnable() {
+							@Override
+							public void run() {
+								if (searchActive) display(false, pageDirs, pageFiles, true);
+							}
+						});
+					}
+				});
+				return null;
+			}
+		}, new FileDialogLoader.Callback<Void>() {
+			@Override
+			public void onLoaded(Void result) {
+				if (mLoadListener != null) mLoadListener.onLoadFinished();
+			}
+		});
+		if (mLoadListener != null) mLoadListener.onLoadStarted();
+	}
+
+	boolean isSearching() {
+		return searchActive;
+	}
+
+	/**
+	 * Leave the search results and show the listing again.
+	 */
+	private void endSearch() {
+		searchActive = false;
+		searchLoader.cancel();
+		display(listedRoot, listedDirs, listedFiles, false);
+		if (mLoadListener != null && !loader.isLoading()) mLoadListener.onLoadFinished();
+	}
+
+	private static Rows searchRows(File[] items, String prefix) {
+		String[] names = new String[items.length];
+		for (int i = 0; i < items.length; i++) {
+			String path = items[i].getAbsolutePath();
+			names[i] = path.startsWith(prefix) ? path.substring(prefix.length()) : path;
+		}
+		return Rows.ofPaths(items, names);
+	}
+
+	/**
+	 * Replace the rows shown. Within the same kind of listing the change is worked out on a loader thread and dispatched as fine-grained notifications, so unchanged rows keep their views and the scroll position is kept: rows only added, as pages of a scan are, become range insertions, and other changes are diffed unless the listings are too large. A newer call cancels a change still being worked out.
+	 *
+	 * @param root     Whether the rows are storage volumes.
+	 * @param newDirs  The directories, or volumes in root mode.
+	 * @param newFiles The files.
+	 * @param diff     Whether to diff the change. Filter results replace the rows at once, as diffing them could take longer than a frame.
+	 */
+	private void display(final boolean root, Rows dirRows, Rows fileRows, boolean diff) {
+		final Rows newDirs = root || searchActive ? dirRows : arrange(dirRows, dirOrder), newFiles = root || searchActive ? fileRows : arrange(fileRows, fileOrder);
+		final int gen = ++showGeneration;
+		final Rows oldDirs = dirs, oldFiles = files;
+		if (!diff || root != shownRoot || oldDirs.size() + oldFiles.size() == 0 || newDirs.size() + newFiles.size() == 0) {
+			diffLoader.cancel();
+			swap(root, newDirs, newFiles);
+			notifyDataSetChanged();
+			return;
+		}
+		diffLoader.load(new FileDialogLoader.Job<Update>() {
+			@Override
+			public Update run() {
+				Update u = new Update();
+				u.inserted = insertions(oldDirs, oldFiles, newDirs, newFiles);
+				if (u.inserted == null && oldDirs.size() + oldFiles.size() + newDirs.size() + newFiles.size() <= MAX_DIFF_ROWS)
+					u.diff = DiffUtil.calculateDiff(new RowsDiff(oldDirs, oldFiles, newDirs, newFiles), false);
+				return u;
+			}
+		}, new FileDialogLoader.Callback<Update>() {
+			@Override
+			public void onLoaded(Update result) {
+				// The rows were changed in place meanwhile
+				if (gen != showGeneration) return;
+				swap(root, newDirs, newFiles);
+				if (result != null && result.inserted != null)
+					for (int i = 0; i < result.inserted.length; i += 2)
+						notifyItemRangeInserted(result.inserted[i], result.inserted[i + 1]);
+				else if (result != null && result.diff != null) result.diff.dispatchUpdatesTo(FileDialogAdapter.this);
+				else notifyDataSetChanged();
+			}
+		});
+	}
+
+	/**
+	 * How the rows shown change: range insertions, a diff, or neither for a full refresh.
+	 */
+	private static final class Update {
+		int[] inserted;
+		DiffUtil.DiffResult diff;
+	}
+
+	/**
+	 * Find the rows added if the old rows are all kept in the same order, as pages of a scan only ever add rows. Runs on a loader thread.
+	 *
+	 * @return The ranges inserted, as pairs of the first row and the count in ascending order, or null if rows were removed or moved, or are inserted in too many ranges.
+	 */
+	private static int[] insertions(Rows oldDirs, Rows oldFiles, Rows newDirs, Rows newFiles) {
+		int[] ranges = new int[16];
+		int n = 0;
+		for (int part = 0; part < 2; part++) {
+			Rows o = part == 0 ? oldDirs : oldFiles, r = part == 0 ? newDirs : newFiles;
+			int offset = part == 0 ? 0 : newDirs.size();
+			if (o.size() > r.size()) return null;
+			for (int i = 0, j = 0; j < r.size(); j++) {
+				if ((j & 0xfff) == 0) FileDialogLoader.checkCanceled();
+				if (i < o.size() && o.getId(i) == r.getId(j)) {
+					i++;
+					continue;
+				}
+				// Not enough rows left to keep the remaining old ones
+				if (r.size() - j <= o.size() - i) return null;
+				if (n > 0 && ranges[n - 2] + ranges[n - 1] == offset + j) ranges[n - 1]++;
+				else {
+					if (n == MAX_INSERT_RANGES * 2) return null;
+					if (n == ranges.length) ranges = Arrays.copyOf(ranges, n * 2);
+					ranges[n++] = offset + j;
+					ranges[n++] = 1;
+				}
+			}
+		}
+		return Arrays.copyOf(ranges, n);
+	}
+
+	private void swap(boolean root, Rows newDirs, Rows newFiles) {
+		if (multiSelect) selection.attach(root ? Rows.EMPTY : newFiles);
+		shownRoot = root;
+		dirs = newDirs;
+		files = newFiles;
+		if (navigateStart != 0 && newDirs.size() + newFiles.size() > 0) frameShown(newDirs.size() + newFiles.size());
+	}
+
+	/**
+	 * Report the time since the navigation once the next frame is drawn.
+	 */
+	private void frameShown(final int rows) {
+		final long start = navigateStart;
+		if (start == 0) return;
+		navigateStart = 0;
+		final RecyclerView view = recyclerView;
+		if (view == null) {
+			FileDialogMetrics.endAsync(FileDialog.METRIC_FIRST_FRAME, start, rows);
+			return;
+		}
+		view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+			@Override
+			public boolean onPreDraw() {
+				view.getViewTreeObserver().removeOnPreDrawListener(this);
+				FileDialogMetrics.endAsync(FileDialog.METRIC_FIRST_FRAME, start, rows);
+				return true;
+			}
+		});
+	}
+
+	@Override
+	public void onAttachedToRecyclerView(@NonNull RecyclerView view) {
+		recyclerView = view;
+	}
+
+	@Override
+	public void onDetachedFromRecyclerView(@NonNull RecyclerView view) {
+		recyclerView = null;
+	}
+
+	private static final class RowsDiff extends DiffUtil.Callback {
+		private final Rows oldDirs, oldFiles, newDirs, newFiles;
+
+		RowsDiff(Rows oldDirs, Rows oldFiles, Rows newDirs, Rows newFiles) {
+			this.oldDirs = oldDirs;
+			this.oldFiles = oldFiles;
+			this.newDirs = newDirs;
+			this.newFiles = newFiles;
+		}
+
+		@Override
+		public int getOldListSize() {
+			return oldDirs.size() + oldFiles.size();
+		}
+
+		@Override
+		public int getNewListSize() {
+			return newDirs.size() + newFiles.size();
+		}
+
+		@Override
+		public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+			FileDialogLoader.checkCanceled();
+			boolean oldDir = oldItemPosition < oldDirs.size(), newDir = newItemPosition < newDirs.size();
+			if (oldDir != newDir) return false;
+			return oldDir
+					? oldDirs.getId(oldItemPosition) == newDirs.getId(newItemPosition)
+					: oldFiles.getId(oldItemPosition - oldDirs.size()) == newFiles.getId(newItemPosition - newDirs.size());
+		}
+
+		@Override
+		public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+			// Rows only show the name, which is part of the identity
+			return true;
+		}
+	}
+
+	/**
+	 * @return The positions of the files of a listing that meet a filter, in the same order.
+	 */
+	private int[] filterFiles(FileDialogListing listing, int[] src, int filterIndex) {
+		if (mimeTypes == null && filters == null) return src;
+		int[] dst = new int[src.length];
+		int n = 0;
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_FILTER);
+		boolean done = false;
+		try {
+			for (int pos : src) {
+				FileDialogLoader.checkCanceled();
+				if (meetFilter(listing.name(pos), filterIndex)) dst[n++] = pos;
+			}
+			done = true;
+		} finally {
+			FileDialogMetrics.end(FileDialog.METRIC_FILTER, t, done ? src.length : -1);
+		}
+		return n == dst.length ? dst : Arrays.copyOf(dst, n);
+	}
+
+	/**
+	 * @return The sorted files of a listing, none for directory-only dialogs, which leave them unsorted.
+	 */
+	private int[] rawFiles(FileDialogListing listing) {
+		return dirOnly ? FileDialogListing.NONE : listing.files;
+	}
+
+	private boolean meetFilter(String name, int filterIndex) {
+		if (mimeTypes != null)
+			return mimeFilters[filterIndex].accept(name);
+		else
+			return filters[filterIndex].meetExtensions(name);
 	}
 
-	void setFilterIndex(int index) {
+	/**
+	 * Switch to another filter. The files of the current directory are filtered again from the snapshot in memory, on a loader thread, and the rows of every filter are kept until the directory changes, so switching back and forth never touches the disk.
+	 */
+	void setFilter(final int index) {
+		if (index == filterIndex) return;
 		filterIndex = index;
+		if (searchActive) {
+			search(query);
+			return;
+		}
+		if (enRoot) return;
+		if (snapshot == null) {
+			// Still scanning: start over with the new filter
+			reload();
+			return;
+		}
+		if (filteredRows[index] != null) {
+			show(false, listedDirs, filteredRows[index]);
+			return;
+		}
+		final FileDialogListing raw = snapshot;
+		loader.load(new FileDialogLoader.Job<Rows>() {
+			@Override
+			public Rows run() {
+				return new Rows(raw, filterFiles(raw, rawFiles(raw), index));
+			}
+		}, new FileDialogLoader.Callback<Rows>() {
+			@Override
+			public void onLoaded(Rows result) {
+				if (mLoadListener != null) mLoadListener.onLoadFinished();
+				if (result != null && raw == snapshot) {
+					filteredRows[index] = result;
+					show(false, listedDirs, result);
+				}
+				applyDeferredChanges();
+			}
+		});
+		if (mLoadListener != null) mLoadListener.onLoadStarted();
+	}
+
+	private void setSnapshot(FileDialogListing listing, int index, Rows files) {
+		snapshot = listing;
+		filteredRows = new Rows[mimeTypes != null ? mimeTypes.length : filters != null ? filters.length : 1];
+		filteredRows[index] = files;
 	}
 
 	int getFilterIndex() {
 		return filterIndex;
 	}
 
+	/**
+	 * Switch to another order. The order of the current listing is made on a loader thread, reading sizes and dates once per listing if it needs them, and every order made is kept with the listing, so switching back and forth neither touches the disk nor sorts again. Directories stay above files, and keep their name order for sizes and types. Search results are always in name order.
+	 *
+	 * @param key        One of the keys of {@link FileDialogOrder}.
+	 * @param descending Whether to take the order backwards.
+	 */
+	void setOrder(int key, boolean descending) {
+		if (key == orderKey && descending == this.descending) return;
+		orderKey = key;
+		this.descending = descending;
+		// A listing still loading is ordered when it arrives
+		if (!prepareOrder()) redisplay();
+	}
+
+	int getOrderKey() {
+		return orderKey;
+	}
+
+	boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * Make the current order of the listing in background if it is not made yet, and show the listing in it once it is.
+	 *
+	 * @return Whether the order is being made.
+	 */
+	private boolean prepareOrder() {
+		final int key = orderKey;
+		final FileDialogOrder d = dirOrder, f = fileOrder;
+		if ((d == null || d.isReady(key)) && (f == null || f.isReady(key))) return false;
+		orderLoader.load(new FileDialogLoader.Job<Boolean>() {
+			@Override
+			public Boolean run() {
+				makeOrder(d, key);
+				makeOrder(f, key);
+				return true;
+			}
+		}, new FileDialogLoader.Callback<Boolean>() {
+			@Override
+			public void onLoaded(Boolean result) {
+				if (result == null || d != dirOrder || f != fileOrder) return;
+				if (key != orderKey) {
+					if (!prepareOrder()) redisplay();
+				} else redisplay();
+			}
+		});
+		return true;
+	}
+
+	private static void makeOrder(FileDialogOrder order, int key) {
+		if (order == null || order.isReady(key)) return;
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_SORT);
+		boolean done = false;
+		try {
+			order.index(key);
+			done = true;
+		} finally {
+			FileDialogMetrics.end(FileDialog.METRIC_SORT, t, done ? order.size() : -1);
+		}
+	}
+
+	/**
+	 * Put rows of the listing in the current order. Orders not made yet leave them in name order.
+	 */
+	private Rows arrange(Rows rows, FileDialogOrder order) {
+		if (order == null || rows.listing != order.listing) return rows;
+		boolean desc = descending && order.orders(orderKey);
+		if (orderKey == FileDialogOrder.NATURAL || !order.orders(orderKey)) return rows.arrange(order.base, null, desc);
+		if (!order.isReady(orderKey)) return rows;
+		return rows.arrange(order.base, order.index(orderKey), desc);
+	}
+
+	/**
+	 * Show the listing again after its order changed. The rows are replaced at once, as diffing a reordering could take longer than a frame.
+	 */
+	private void redisplay() {
+		if (searchActive || listedRoot) return;
+		if (query.length() == 0) display(false, listedDirs, listedFiles, false);
+		else applyFilter();
+	}
+
 	File getFile(int position) {
-		if (enRoot) return devices[position];
+		if (shownRoot) return dirs.get(position);
 		else {
-			if (position < dirs.length) {
-				return dirs[position];
+			if (position < dirs.size()) {
+				return dirs.get(position);
 			} else {
-				return files[position - dirs.length];
+				return files.get(position - dirs.size());
 			}
 		}
 	}
 
+	/**
+	 * @return The selected files, including those picked in other folders or hidden by the current filter.
+	 */
 	File[] getSelectedFiles() {
-		if (enRoot) return new File[0];
-		else {
-			File[] files1 = new File[files.length];
-			int i = 0;
-			for (int j = 0; j < selected.length; j++)
-				if (selected[j]) {
-					files1[i] = files[j];
-					i++;
-				}
-			File[] files2 = new File[i];
-			System.arraycopy(files1, 0, files2, 0, i);
-			return files2;
-		}
+		return selection.toArray();
+	}
+
+	int getSelectedCount() {
+		return selection.size();
+	}
+
+	boolean isAllSelected() {
+		return selection.isAllSelected();
+	}
+
+	void selectAll() {
+		selection.selectAll();
+		notifyFilesChanged();
+	}
+
+	void invertSelection() {
+		selection.invert();
+		notifyFilesChanged();
+	}
+
+	void clearSelection() {
+		selection.clear();
+		notifyFilesChanged();
+	}
+
+	// Rebinds only the checkboxes on screen, whatever the number of rows
+	private void notifyFilesChanged() {
+		if (files.size() > 0) notifyItemRangeChanged(dirs.size(), files.size());
 	}
 
 	File[] getDevices() {
-		return devices;
+		return devices.toFiles();
+	}
+
+	boolean isRoot() {
+		return enRoot;
 	}
 
 	File getCurrentDir() {
@@ -247,7 +1541,10 @@ class FileDialogAdapter extends RecyclerView.Adapter<FileDialogAdapter.FileViewH
 	}
 
 	File getParentDir() {
-		for (File dev : devices) {
+		if (enRoot) return null;
+		// Until volumes answer, only the primary storage is known to be one, and the directory above a volume cannot be read
+		if (!devicesProbed) return currentDir.equals(rootDir) ? null : currentDir.getParentFile();
+		for (File dev : getDevices()) {
 			if (dev.equals(currentDir)) {
 				return null;
 			}
@@ -262,28 +1559,18 @@ class FileDialogAdapter extends RecyclerView.Adapter<FileDialogAdapter.FileViewH
 		} catch (Exception e) {
 			currentDir = rootDir;
 		}
-		dirs = sortFile(getDirs());
-		if (dirOnly) files = new File[0];
-		else files = sortFile(getFiles());
-		if (files != null) selected = new boolean[files.length];
 		enRoot = false;
+		resetQuery();
+		load(true, false);
 	}
 
 	void setRoot() {
-		devices = FileDialog.getStorage(context.getApplicationContext(), ignoreReadOnly);
-		selected = new boolean[0];
 		enRoot = true;
+		resetQuery();
+		load(true, true);
 	}
 
 	void reload() {
-		if (!enRoot) {
-			dirs = sortFile(getDirs());
-			if (dirOnly) files = new File[0];
-			else files = sortFile(getFiles());
-			if (files != null) selected = new boolean[files.length];
-		} else {
-			devices = FileDialog.getStorage(context.getApplicationContext(), ignoreReadOnly);
-			selected = new boolean[0];
-		}
+		load(false, enRoot);
 	}
 }
@@ -0,0 +1,210 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogCache <= [P|FileDialog]
+ * Last modified: 01:48:37 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide LRU cache of scanned and sorted listings. Entries are keyed by directory path and validated against the directory's modification time; files rewritten in place leave that alone, so the rows of a listing served from here are stat'ed again as they are shown, and the listing is removed once one of them is found changed. The cache is bounded by an estimate of the heap its listings and the indexes of their orders hold.
+ */
+final class FileDialogCache {
+
+	/**
+	 * The default budget, in bytes.
+	 */
+	static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+	// Directories modified this recently may change again within the same mtime tick, so they are not cached
+	private static final long MIN_AGE = 2000;
+
+	private FileDialogCache() {
+	}
+
+	/**
+	 * A cached listing, shared and not to be modified.
+	 */
+	static final class Entry {
+		final long lastModified;
+		private final FileDialogListing listing;
+		private boolean filesSorted;
+		// Kept with the listing so that orders made once are reused when the directory is visited again. Their indexes are counted in the size as they are made
+		private FileDialogOrder dirOrder, fileOrder;
+		// Guarded by FileDialogCache.class
+		long size;
+		private boolean cached;
+
+		private Entry(long lastModified, FileDialogListing listing, boolean filesSorted) {
+			this.lastModified = lastModified;
+			this.listing = listing;
+			this.filesSorted = filesSorted;
+			this.size = listing.estimate();
+		}
+
+		/**
+		 * Get the listing, sorting its files on first use. Listings cached by directory-only dialogs skip sorting files until somebody needs them.
+		 *
+		 * @param sorter The sorter, or null if the files are not needed, in which case they may be out of order.
+		 */
+		synchronized FileDialogListing getListing(FileDialogSorter sorter) {
+			if (sorter != null && !filesSorted) {
+				long t = FileDialogMetrics.begin(FileDialog.METRIC_SORT);
+				// Nobody reads the files of the listing before they are sorted
+				sorter.sort(listing.names(listing.files), listing.files);
+				FileDialogMetrics.end(FileDialog.METRIC_SORT, t, listing.files.length);
+				filesSorted = true;
+			}
+			return listing;
+		}
+
+		synchronized FileDialogOrder getDirOrder() {
+			if (dirOrder == null) dirOrder = newOrder(listing.dirs, true);
+			return dirOrder;
+		}
+
+		synchronized FileDialogOrder getFileOrder(FileDialogSorter sorter) {
+			if (fileOrder == null) fileOrder = newOrder(getListing(sorter).files, false);
+			return fileOrder;
+		}
+
+		private FileDialogOrder newOrder(int[] base, boolean dirs) {
+			FileDialogOrder order = new FileDialogOrder(listing, base, dirs);
+			order.setListener(new FileDialogOrder.Listener() {
+				@Override
+				public void onIndexMade(long bytes) {
+					grow(Entry.this, bytes);
+				}
+			});
+			return order;
+		}
+
+		int count() {
+			return listing.count();
+		}
+	}
+
+	private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private static long maxSize = DEFAULT_MAX_SIZE, size;
+	private static long hits, misses;
+
+	private static String key(File dir, boolean showHidden) {
+		return (showHidden ? '1' : '0') + dir.getAbsolutePath();
+	}
+
+	/**
+	 * Look up a listing. Entries whose directory has been modified since they were scanned are dropped.
+	 *
+	 * @param dir          The directory.
+	 * @param showHidden   Whether the listing includes hidden entries.
+	 * @param lastModified The current modification time of the directory.
+	 * @return The entry, or null on a miss.
+	 */
+	static Entry get(File dir, boolean showHidden, long lastModified) {
+		String k = key(dir, showHidden);
+		synchronized (FileDialogCache.class) {
+			Entry e = entries.get(k);
+			if (e != null && e.lastModified == lastModified && lastModified != 0) {
+				hits++;
+				return e;
+			}
+			if (e != null) {
+				entries.remove(k);
+				e.cached = false;
+				size -= e.size;
+			}
+			misses++;
+			return null;
+		}
+	}
+
+	/**
+	 * Drop the listings of a directory, with and without hidden entries, such as when entries changed without the directory being modified.
+	 */
+	static synchronized void remove(File dir) {
+		for (int i = 0; i < 2; i++) {
+			Entry e = entries.remove(key(dir, i == 1));
+			if (e == null) continue;
+			e.cached = false;
+			size -= e.size;
+		}
+	}
+
+	/**
+	 * Store a listing, evicting the least recently used ones if the budget is exceeded.
+	 *
+	 * @param dir          The directory.
+	 * @param showHidden   Whether the listing includes hidden entries.
+	 * @param lastModified The modification time of the directory, read before it was scanned.
+	 * @param listing      The listing, with its directories sorted.
+	 * @param filesSorted  Whether its files are sorted too.
+	 * @return The entry stored, which should be used instead of the listing passed in.
+	 */
+	static Entry put(File dir, boolean showHidden, long lastModified, FileDialogListing listing, boolean filesSorted) {
+		Entry e = new Entry(lastModified, listing, filesSorted);
+		if (lastModified == 0 || System.currentTimeMillis() - lastModified < MIN_AGE) return e;
+		synchronized (FileDialogCache.class) {
+			if (e.size > maxSize) return e;
+			Entry old = entries.put(key(dir, showHidden), e);
+			if (old != null) {
+				old.cached = false;
+				size -= old.size;
+			}
+			e.cached = true;
+			size += e.size;
+			trim();
+		}
+		return e;
+	}
+
+	// Count the heap an entry took after it was stored, such as the indexes of its orders
+	private static synchronized void grow(Entry e, long bytes) {
+		e.size += bytes;
+		if (!e.cached) return;
+		size += bytes;
+		trim();
+	}
+
+	private static void trim() {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Entry e = it.next().getValue();
+			e.cached = false;
+			size -= e.size;
+			it.remove();
+		}
+	}
+
+	static synchronized void setMaxSize(long bytes) {
+		maxSize = Math.max(0, bytes);
+		trim();
+	}
+
+	static synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	static synchronized long getSize() {
+		return size;
+	}
+
+	static synchronized void clear() {
+		for (Entry e : entries.values())
+			e.cached = false;
+		entries.clear();
+		size = 0;
+	}
+
+	static synchronized long getHitCount() {
+		return hits;
+	}
+
+	static synchronized long getMissCount() {
+		return misses;
+	}
+}
@@ -0,0 +1,742 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogController <= [P|FileDialog]
+ * Last modified: 01:26:30 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.app.AlertDialog;
+import android.content.Context;
+import android.content.DialogInterface;
+import android.os.Build;
+import android.os.Environment;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.KeyEvent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.webkit.MimeTypeMap;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ImageButton;
+import android.widget.ProgressBar;
+import android.widget.Spinner;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+
+/**
+ * A file dialog that can be prepared ahead of time and opened again and again. {@link #prewarm()} inflates the layout, builds the filter tables and starts probing storage and listing the start directory in background, so that {@link #show(FileDialog.OnFileTouchedListener)} only has to put the window on screen. Every opening starts over at the start directory, with the default filename, filter and an empty selection. With a remember key set, the start directory and filter are the ones the dialog was last closed with under that key. Use it on the main thread, and {@link #release()} it when the Activity it belongs to finishes.
+ */
+@SuppressWarnings("WeakerAccess")
+public class FileDialogController {
+
+	private static final String STR_EMPTY = "";
+
+	/**
+	 * Builds a FileDialogController. All settings are optional; the default is a dialog opening a single file of any type.
+	 */
+	public static class Builder {
+		private final Context context;
+		private File startDirectory;
+		private String filename, rememberKey;
+		private int mode, filterIndex, det, sortBy = FileDialog.SORT_NATURAL;
+		private FileDialogFilter[] filters;
+		private String[] mimes;
+		private boolean showHidden, ignoreReadOnly, descending, showDetails, showThumbnails;
+
+		/**
+		 * @param context The parent Context, usually the Activity showing the dialog.
+		 */
+		public Builder(Context context) {
+			this.context = context;
+		}
+
+		/**
+		 * @param mode This parameter decides the type of the dialog. 0 for fileOpen, 1 for fileOpenMultiple, 2 for fileSelectDirectory, and 3 for fileSave.
+		 */
+		public Builder setMode(int mode) {
+			this.mode = mode;
+			return this;
+		}
+
+		/**
+		 * @param startDirectory The directory the dialog will start with. If invalid, the dialog will start with the default SD card directory.
+		 */
+		public Builder setStartDirectory(File startDirectory) {
+			this.startDirectory = startDirectory;
+			return this;
+		}
+
+		/**
+		 * @param filename The default filename for fileSave mode. It will be ignored in other modes.
+		 */
+		public Builder setFilename(String filename) {
+			this.filename = filename;
+			return this;
+		}
+
+		/**
+		 * @param filters This parameter provides a set of filters. It replaces MIME types set before.
+		 */
+		public Builder setFilters(FileDialogFilter[] filters) {
+			this.filters = filters;
+			this.mimes = null;
+			return this;
+		}
+
+		/**
+		 * @param mimes The MIME types strings. Each String should be formatted like "type/subtype". It replaces filters set before.
+		 * @param det   The detail level of mime-type filter. 0 for original MIME types strings, 1 for all of the extensions matches the MIME types, and 2 for both.
+		 */
+		public Builder setMimeTypes(String[] mimes, int det) {
+			this.mimes = mimes;
+			this.det = det;
+			this.filters = null;
+			return this;
+		}
+
+		/**
+		 * @param filterIndex This parameter provides the default position of filter spinner. It will be reset if an invalid value was passed.
+		 */
+		public Builder setFilterIndex(int filterIndex) {
+			this.filterIndex = filterIndex;
+			return this;
+		}
+
+		/**
+		 * @param showHidden This parameter decides whether hidden(starts with '.') files could be shown or be created.
+		 */
+		public Builder setShowHidden(boolean showHidden) {
+			this.showHidden = showHidden;
+			return this;
+		}
+
+		/**
+		 * @param ignoreReadOnly This parameter decides whether read-only status of a device will be ignored.
+		 */
+		public Builder setIgnoreReadOnly(boolean ignoreReadOnly) {
+			this.ignoreReadOnly = ignoreReadOnly;
+			return this;
+		}
+
+		/**
+		 * @param sortBy     The order entries are listed in, one of the SORT_ constants of {@link FileDialog}. The default is {@link FileDialog#SORT_NATURAL}.
+		 * @param descending Whether to list them in reverse order.
+		 */
+		public Builder setSortOrder(int sortBy, boolean descending) {
+			this.sortBy = sortBy;
+			this.descending = descending;
+			return this;
+		}
+
+		/**
+		 * @param rememberKey A key naming the call site. If set, the directory and filter the dialog is closed with are remembered under it, and used instead of the ones set here the next time a dialog is built with it. See {@link FileDialog#prefetchListing(Context, String, File, boolean)}.
+		 */
+		public Builder setRememberKey(String rememberKey) {
+			this.rememberKey = rememberKey;
+			return this;
+		}
+
+		/**
+		 * @param showDetails Whether to show the size and modification date of entries. Details are read only for the rows on or near the screen, in batches on a background thread. The default is false.
+		 */
+		public Builder setShowDetails(boolean showDetails) {
+			this.showDetails = showDetails;
+			return this;
+		}
+
+		/**
+		 * @param showThumbnails Whether to show thumbnails of image and video files. Thumbnails are decoded in background at the size they are shown, only for the rows on screen, and kept in memory within a budget of a sixteenth of the heap. See {@link FileDialog#setThumbnailDiskCacheEnabled(boolean)}. The default is false.
+		 */
+		public Builder setShowThumbnails(boolean showThumbnails) {
+			this.showThumbnails = showThumbnails;
+			return this;
+		}
+
+		/**
+		 * Make the dialog. Options not set keep their defaults, and a dialog given neither filters nor MIME types lists every file, except in fileSelectDirectory mode.
+		 *
+		 * @return The dialog, to be shown with {@link FileDialogController#show(FileDialog.OnFileTouchedListener)} or prepared with {@link FileDialogController#prewarm()}.
+		 */
+		public FileDialogController build() {
+			FileDialogFilter[] f = filters == null && mimes == null && mode != 2 ? new FileDialogFilter[]{FileDialog.ALL} : filters;
+			return new FileDialogController(context, startDirectory, filename, mode, f, filterIndex, mimes, det, showHidden, ignoreReadOnly, rememberKey, sortBy, descending, showDetails, showThumbnails);
+		}
+	}
+
+	private final Context parent;
+	private File startDirectory;
+	private final String filename, rememberKey;
+	private final int mode, det;
+	private final FileDialogFilter[] filters;
+	private final String[] mimeTypes;
+	private int filterIndex;
+	private final boolean showHidden, ignoreReadOnly, showDetails, showThumbnails;
+	private int sortBy;
+	private boolean descending;
+	private final MimeTypeMap mimeTypeMap = MimeTypeMap.getSingleton();
+
+	private FileDialog.OnFileTouchedListener listener;
+	private View view;
+	private EditText fName, eFilter;
+	private TextView lblPath;
+	private Spinner spnExt;
+	private Button btnBack, ok;
+	private FileDialogAdapter dirAdapter;
+	private AlertDialog fileDialog;
+	private boolean opened;
+
+	FileDialogController(Context parent, File startDirectory, String filename, int mode, FileDialogFilter[] filters, int filterIndex, String[] mimes, int det, boolean showHidden, boolean ignoreReadOnly, String rememberKey, int sortBy, boolean descending, boolean showDetails, boolean showThumbnails) {
+		this.parent = parent;
+		this.filename = filename;
+		this.rememberKey = rememberKey;
+		this.mode = mode;
+		this.filters = filters;
+		this.det = det;
+		this.showHidden = showHidden;
+		this.ignoreReadOnly = ignoreReadOnly;
+		this.sortBy = sortBy >= FileDialog.SORT_NAME && sortBy <= FileDialog.SORT_TYPE ? sortBy : FileDialog.SORT_NATURAL;
+		this.descending = descending;
+		this.showDetails = showDetails;
+		this.showThumbnails = showThumbnails;
+		String[] mimeTypes = null;
+		if (mimes != null) {
+			boolean vAll = false;
+			String[] vMime = new String[mimes.length + 1];
+			int i = 0;
+			for (String v : mimes) {
+				if (v.equals(FileDialog.MIME_ALL)) vAll = true;
+				else if (mimeTypeMap.hasMimeType(v)) {
+					vMime[i] = v;
+					i++;
+				}
+			}
+			if (vAll || i == 0) {
+				vMime[i] = FileDialog.MIME_ALL;
+				i++;
+			}
+			String[] xm = new String[i];
+			System.arraycopy(vMime, 0, xm, 0, i);
+			mimeTypes = xm;
+		}
+		this.mimeTypes = mimeTypes;
+		if (rememberKey != null) {
+			File dir = FileDialogHistory.getDir(parent, rememberKey);
+			if (dir != null) startDirectory = dir;
+			int index = FileDialogHistory.getFilterIndex(parent, rememberKey);
+			if (index >= 0) filterIndex = index;
+		}
+		int count = mimeTypes != null ? mimeTypes.length : filters != null ? filters.length : 0;
+		this.filterIndex = filterIndex > 0 && filterIndex < count ? filterIndex : 0;
+		try {
+			if (!startDirectory.isDirectory() || !startDirectory.canWrite()) throw new Exception();
+		} catch (Exception e) {
+			startDirectory = Environment.getExternalStorageDirectory();
+		}
+		this.startDirectory = startDirectory;
+	}
+
+	/**
+	 * Prepare the dialog without showing it: inflate the layout and start probing storage and listing the start directory in background. Calling it again does nothing.
+	 */
+	public void prewarm() {
+		if (view != null) return;
+		view = LayoutInflater.from(parent).inflate(R.layout.file_dialog, null);
+		fName = view.findViewById(R.id.save_f_name);
+		if (mode < 3) fName.setVisibility(View.GONE);
+		else if (filename != null && filename.length() > 0) fName.setText(filename);
+		lblPath = view.findViewById(R.id.lblPath);
+		lblPath.setText(startDirectory.getAbsolutePath());
+		spnExt = view.findViewById(R.id.spnExt);
+		if (mode == 2) spnExt.setVisibility(View.GONE);
+		else {
+			ArrayAdapter<String> spinnerAdapter;
+			if (mimeTypes != null) {
+				switch (det) {
+					case 0:
+						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, mimeTypes);
+						break;
+					case 1:
+						String[] des = new String[mimeTypes.length];
+						for (int i = 0; i < mimeTypes.length; i++) {
+							if (mimeTypes[i].equals(FileDialog.MIME_ALL))
+								des[i] = '.' + mimeTypeMap.getExtensionFromMimeType(mimeTypes[i]);
+						}
+						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, des);
+						break;
+					case 2:
+						String[] desc = new String[mimeTypes.length];
+						for (int i = 0; i < mimeTypes.length; i++) {
+							if (mimeTypes[i].equals(FileDialog.MIME_ALL))
+								desc[i] = desc[i] + '(' + '.' + mimeTypeMap.getExtensionFromMimeType(mimeTypes[i]) + ')';
+						}
+						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, desc);
+						break;
+					default:
+						spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, mimeTypes);
+						break;
+				}
+
+				spinnerAdapter.setDropDownViewResource(R.layout.ext_slot);
+				spnExt.setAdapter(spinnerAdapter);
+				if (filterIndex > 0) spnExt.setSelection(filterIndex);
+				if (mimeTypes.length < 2) spnExt.setEnabled(false);
+			} else if (filters != null) {
+				String[] fil = new String[filters.length];
+				for (int i = 0; i < filters.length; i++)
+					fil[i] = filters[i].name;
+				spinnerAdapter = new ArrayAdapter<>(view.getContext(), R.layout.ext_slot, fil);
+				spinnerAdapter.setDropDownViewResource(R.layout.ext_slot);
+				spnExt.setAdapter(spinnerAdapter);
+				if (filterIndex > 0) spnExt.setSelection(filterIndex);
+				if (filters.length < 2) spnExt.setEnabled(false);
+			}
+		}
+		final RecyclerView dir = view.findViewById(R.id.diFileList);
+		dir.setLayoutManager(new LinearLayoutManager(view.getContext()));
+		dirAdapter = new FileDialogAdapter(view.getContext(), filters, spnExt.getSelectedItemPosition(), mimeTypes, startDirectory, mode == 1, mode == 2, showHidden, ignoreReadOnly, sortBy, descending, showDetails, showThumbnails);
+		dir.setAdapter(dirAdapter);
+		btnBack = view.findViewById(R.id.btnBack);
+		btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !startDirectory.equals(Environment.getExternalStorageDirectory()));
+		final ProgressBar pgbLoading = view.findViewById(R.id.pgbLoading);
+		eFilter = view.findViewById(R.id.eFilter);
+		eFilter.addTextChangedListener(new TextWatcher() {
+			@Override
+			public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+			}
+
+			@Override
+			public void onTextChanged(CharSequence s, int start, int before, int count) {
+
+			}
+
+			@Override
+			public void afterTextChanged(Editable s) {
+				dirAdapter.setQuery(s.toString());
+			}
+		});
+		eFilter.setOnEditorActionListener(new TextView.OnEditorActionListener() {
+			@Override
+			public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+				dirAdapter.search(v.getText().toString());
+				return true;
+			}
+		});
+		dirAdapter.setOnLoadListener(new FileDialogAdapter.LoadListener() {
+			@Override
+			public void onLoadStarted() {
+				pgbLoading.setVisibility(View.VISIBLE);
+			}
+
+			@Override
+			public void onLoadFinished() {
+				pgbLoading.setVisibility(View.GONE);
+				if (!dirAdapter.isRoot())
+					btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !dirAdapter.getRootDir().equals(dirAdapter.getCurrentDir()));
+			}
+		});
+		ImageButton btnNewFolder = view.findViewById(R.id.btnNewFolder);
+		if (mode < 2) btnNewFolder.setVisibility(View.GONE);
+		else btnNewFolder.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				final View view1 = LayoutInflater.from(view.getContext()).inflate(R.layout.fn_slot, null);
+				final EditText editText = view1.findViewById(R.id.eFn);
+				final AlertDialog newFolderDialog = new AlertDialog.Builder(view.getContext())
+						.setTitle(R.string.new_folder)
+						.setView(view1)
+						.setNegativeButton(android.R.string.cancel, null)
+						.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+							@Override
+							public void onClick(DialogInterface dialog, int which) {
+								File f = new File(dirAdapter.getCurrentDir().getAbsolutePath() + '/' + editText.getText().toString());
+								if (f.exists())
+									Toast.makeText(view.getContext(), R.string.folder_already_exist, Toast.LENGTH_SHORT).show();
+								else {
+									boolean d = f.mkdir();
+									if (d && f.exists()) {
+										dirAdapter.setDir(f);
+										eFilter.setText(STR_EMPTY);
+										lblPath.setText(f.getAbsolutePath());
+										btnBack.setEnabled(true);
+									}
+								}
+							}
+						})
+						.show();
+				final Button okx = newFolderDialog.getButton(AlertDialog.BUTTON_POSITIVE);
+				okx.setEnabled(false);
+				editText.addTextChangedListener(new TextWatcher() {
+					@Override
+					public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+					}
+
+					@Override
+					public void onTextChanged(CharSequence s, int start, int before, int count) {
+
+					}
+
+					@Override
+					public void afterTextChanged(Editable s) {
+						if (editText.getText().toString().indexOf('.') == 0) {
+							try {
+								if (!showHidden) {
+									okx.setEnabled(false);
+									Toast.makeText(view1.getContext(), R.string.cannot_create_hidden_files, Toast.LENGTH_SHORT).show();
+								} else okx.setEnabled(editText.getText().toString().substring(1).length() != 0);
+							} catch (Exception e) {
+								e.printStackTrace();
+							}
+						} else if (editText.getText().toString().indexOf('+') == 0 || editText.getText().toString().indexOf('-') == 0) {
+							okx.setEnabled(false);
+							Toast.makeText(view1.getContext(), R.string.filename_cannot_begin_with, Toast.LENGTH_SHORT).show();
+						} else if (illegalFilename(editText.getText().toString())) {
+							okx.setEnabled(false);
+							Toast.makeText(view1.getContext(), R.string.filename_cannot_contains, Toast.LENGTH_SHORT).show();
+						} else okx.setEnabled(editText.getText().toString().length() > 0);
+					}
+				});
+				editText.setOnEditorActionListener(new TextView.OnEditorActionListener() {
+					@Override
+					public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+						if (okx.isEnabled())
+							if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
+								okx.performClick();
+							else
+								okx.callOnClick();
+						return true;
+					}
+				});
+			}
+		});
+		if (mode != 2) {
+			spnExt.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+				@Override
+				public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+					dirAdapter.setFilter(position);
+				}
+
+				@Override
+				public void onNothingSelected(AdapterView<?> parent) {
+
+				}
+			});
+		}
+		AlertDialog.Builder builder = new AlertDialog.Builder(parent).setView(view);
+		if (mode == 0) builder.setTitle(R.string.open);
+		else {
+			if (mode == 1) builder.setTitle(R.string.open);
+			else if (mode == 2) builder.setTitle(R.string.select_dir);
+			else if (mode == 3) builder.setTitle(R.string.save_as);
+			builder.setNegativeButton(android.R.string.cancel, new DialogInterface.OnClickListener() {
+				@Override
+				public void onClick(DialogInterface dialog, int which) {
+					dialog.cancel();
+				}
+			})
+					.setPositiveButton(android.R.string.ok, null);
+			if (mode == 1) builder.setNeutralButton(R.string.select_all, null);
+		}
+		fileDialog = builder.create();
+		fileDialog.setCanceledOnTouchOutside(false);
+		fileDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+			@Override
+			public void onCancel(DialogInterface dialog) {
+				if (listener != null) listener.onCanceled();
+			}
+		});
+		fileDialog.setOnDismissListener(new DialogInterface.OnDismissListener() {
+			@Override
+			public void onDismiss(DialogInterface dialog) {
+				dirAdapter.cancelLoading();
+				remember();
+			}
+		});
+		// Builds the window content, buttons included, before it is needed
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) fileDialog.create();
+	}
+
+	/**
+	 * Open the dialog, prewarming it first if needed. If it was opened before, it starts over at the start directory.
+	 *
+	 * @param listener The call back that will be run when the dialog is closed.
+	 */
+	public void show(FileDialog.OnFileTouchedListener listener) {
+		if (fileDialog != null && fileDialog.isShowing()) return;
+		prewarm();
+		this.listener = listener;
+		if (opened) reset();
+		fileDialog.show();
+		if (!opened) bindButtons();
+		opened = true;
+		if (mode == 1) ok.setEnabled(dirAdapter.getSelectedCount() > 0);
+		else if (mode == 2) ok.setEnabled(true);
+		else if (mode == 3) {
+			if (fName.getText().toString().indexOf('.') == 0) {
+				ok.setEnabled(showHidden && fName.getText().toString().substring(1).length() != 0);
+			} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0 || illegalFilename(fName.getText().toString())) {
+				ok.setEnabled(false);
+			} else ok.setEnabled(fName.getText().toString().length() > 0);
+		}
+	}
+
+	/**
+	 * Switch the order entries are listed in, also while the dialog is open. Switching does not read the directory again: sizes and dates are read once per listing, and every order made is kept with it, so switching back is immediate. Directories stay above files, and keep their name order when sorting by size or type.
+	 *
+	 * @param sortBy     One of the SORT_ constants of {@link FileDialog}. It will be reset if an invalid value was passed.
+	 * @param descending Whether to list entries in reverse order.
+	 */
+	public void setSortOrder(int sortBy, boolean descending) {
+		this.sortBy = sortBy >= FileDialog.SORT_NAME && sortBy <= FileDialog.SORT_TYPE ? sortBy : FileDialog.SORT_NATURAL;
+		this.descending = descending;
+		if (dirAdapter != null) dirAdapter.setOrder(this.sortBy, descending);
+	}
+
+	/**
+	 * Close the dialog if it is open, and stop any work in background. The controller may still be shown again later.
+	 */
+	public void release() {
+		if (fileDialog == null) return;
+		if (fileDialog.isShowing()) fileDialog.dismiss();
+		dirAdapter.cancelLoading();
+	}
+
+	// Start the next opening where this one was closed, in this controller and in those built later with the same key
+	private void remember() {
+		if (rememberKey == null || dirAdapter.isRoot()) return;
+		startDirectory = dirAdapter.getCurrentDir();
+		if (mode != 2) filterIndex = spnExt.getSelectedItemPosition();
+		FileDialogHistory.put(parent, rememberKey, startDirectory, filterIndex);
+	}
+
+	// Put back the state of a new dialog. The listing of the start directory is usually still cached
+	private void reset() {
+		eFilter.setText(STR_EMPTY);
+		if (mode == 1) dirAdapter.clearSelection();
+		if (mode == 3) fName.setText(filename != null ? filename : STR_EMPTY);
+		if (mode != 2 && spnExt.getSelectedItemPosition() != filterIndex) spnExt.setSelection(filterIndex);
+		if (dirAdapter.isRoot() || !dirAdapter.getCurrentDir().equals(startDirectory)) {
+			dirAdapter.setDir(startDirectory);
+			lblPath.setText(startDirectory.getAbsolutePath());
+			btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !startDirectory.equals(Environment.getExternalStorageDirectory()));
+		} else dirAdapter.reload();
+	}
+
+	// The buttons exist once the dialog has been created
+	private void bindButtons() {
+		ok = fileDialog.getButton(AlertDialog.BUTTON_POSITIVE);
+		if (mode == 1) {
+			final Button selectAll = fileDialog.getButton(AlertDialog.BUTTON_NEUTRAL);
+			selectAll.setOnClickListener(new View.OnClickListener() {
+				@Override
+				public void onClick(View v) {
+					if (dirAdapter.isAllSelected()) dirAdapter.invertSelection();
+					else dirAdapter.selectAll();
+					ok.setEnabled(dirAdapter.getSelectedCount() > 0);
+				}
+			});
+			selectAll.setOnLongClickListener(new View.OnLongClickListener() {
+				@Override
+				public boolean onLongClick(View v) {
+					dirAdapter.invertSelection();
+					ok.setEnabled(dirAdapter.getSelectedCount() > 0);
+					return true;
+				}
+			});
+		}
+		ok.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				if (mode == 1) {
+					File[] files = dirAdapter.getSelectedFiles();
+					if (files.length > 0) {
+						listener.onFileTouched(files);
+						fileDialog.dismiss();
+					}
+				} else if (mode == 2) {
+					listener.onFileTouched(new File[]{dirAdapter.getCurrentDir()});
+					fileDialog.dismiss();
+				} else if (mode == 3) {
+					String fn = fName.getText().toString();
+					String mmx = dirAdapter.mimeTypes != null
+							?
+							dirAdapter.mimeTypes[dirAdapter.getFilterIndex()]
+							:
+							null;
+					FileDialogFilter ffx = dirAdapter.filters != null
+							?
+							dirAdapter.filters[dirAdapter.getFilterIndex()]
+							:
+							null;
+					fn = mmx != null
+							?
+							(mmx.equals(FileDialog.MIME_ALL) || mmx.equals(FileDialogMimeResolver.getMimeType(fn))
+									?
+									fn
+									:
+									fn + '.' + mimeTypeMap.getExtensionFromMimeType(mmx))
+							:
+							ffx != null
+									?
+									ffx.meetExtensions(fn)
+											?
+											fn
+											:
+											fn + ffx.extensions[0]
+									:
+									fn;
+					String fPath = dirAdapter.getCurrentDir().getAbsolutePath() + '/' + fn;
+					final File of = new File(fPath);
+					if (of.exists()) {
+						new AlertDialog.Builder(view.getContext())
+								.setMessage(R.string.file_already_exist)
+								.setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
+									@Override
+									public void onClick(DialogInterface dialog, int which) {
+										listener.onFileTouched(new File[]{of});
+										fileDialog.dismiss();
+									}
+								})
+								.setNegativeButton(android.R.string.cancel, null)
+								.show();
+					} else {
+						listener.onFileTouched(new File[]{of});
+						fileDialog.dismiss();
+					}
+				}
+			}
+		});
+		btnBack.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				if (dirAdapter.isSearching()) {
+					dirAdapter.setQuery(eFilter.getText().toString());
+					return;
+				}
+				File f = dirAdapter.getParentDir();
+				if (f != null && f.exists() && f.isDirectory()) {
+					dirAdapter.setDir(f);
+					eFilter.setText(STR_EMPTY);
+					lblPath.setText(f.getAbsolutePath());
+					btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !dirAdapter.getRootDir().getAbsolutePath().equals(f.getAbsolutePath()));
+					if (mode == 1) ok.setEnabled(dirAdapter.getSelectedCount() > 0);
+					else if (mode == 2) ok.setEnabled(true);
+					else if (mode == 3) {
+						if (fName.getText().toString().indexOf('.') == 0) {
+							ok.setEnabled(showHidden && fName.getText().toString().substring(1).length() != 0);
+						} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0 || illegalFilename(fName.getText().toString())) {
+							ok.setEnabled(false);
+						} else ok.setEnabled(fName.getText().toString().length() > 0);
+					}
+					if (fName.getText().toString().length() > 0 && !illegalFilename(fName.getText().toString()))
+						ok.setEnabled(true);
+				} else {
+					dirAdapter.setRoot();
+					eFilter.setText(STR_EMPTY);
+					lblPath.setText(STR_EMPTY);
+					btnBack.setEnabled(false);
+					ok.setEnabled(false);
+				}
+			}
+		});
+		dirAdapter.setOnItemClickListener(new FileDialogAdapter.ItemClickListener() {
+			@Override
+			public void onItemClick(int position) {
+				File f = dirAdapter.getFile(position);
+				if (f.isDirectory()) {
+					dirAdapter.setDir(f);
+					eFilter.setText(STR_EMPTY);
+					lblPath.setText(f.getAbsolutePath());
+					btnBack.setEnabled(dirAdapter.getDevices().length > 1 || !dirAdapter.getRootDir().getAbsolutePath().equals(f.getAbsolutePath()));
+					if (mode == 1) ok.setEnabled(dirAdapter.getSelectedCount() > 0);
+					else if (mode == 2) ok.setEnabled(true);
+					else if (mode == 3) {
+						if (fName.getText().toString().indexOf('.') == 0) {
+							ok.setEnabled(showHidden && fName.getText().toString().substring(1).length() != 0);
+						} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0 || illegalFilename(fName.getText().toString())) {
+							ok.setEnabled(false);
+						} else ok.setEnabled(fName.getText().toString().length() > 0);
+					}
+				} else if (f.isFile()) {
+					if (mode == 0) {
+						listener.onFileTouched(new File[]{f});
+						fileDialog.dismiss();
+					} else if (mode == 1) {
+						ok.setEnabled(dirAdapter.getSelectedCount() > 0);
+					} else if (mode == 3) {
+						String fn = f.getName();
+						if (fn.equals(fName.getText().toString()))
+							if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
+								ok.performClick();
+							else
+								ok.callOnClick();
+						else
+							fName.setText(fn);
+					}
+				}
+			}
+		});
+		fName.addTextChangedListener(new TextWatcher() {
+			@Override
+			public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+
+			}
+
+			@Override
+			public void onTextChanged(CharSequence s, int start, int before, int count) {
+
+			}
+
+			@Override
+			public void afterTextChanged(Editable s) {
+				if (fName.getText().toString().indexOf('.') == 0) {
+					if (!showHidden) {
+						ok.setEnabled(false);
+						Toast.makeText(view.getContext(), R.string.cannot_create_hidden_files, Toast.LENGTH_SHORT).show();
+					} else ok.setEnabled(fName.getText().toString().substring(1).length() != 0);
+				} else if (fName.getText().toString().indexOf('+') == 0 || fName.getText().toString().indexOf('-') == 0) {
+					ok.setEnabled(false);
+					Toast.makeText(view.getContext(), R.string.filename_cannot_begin_with, Toast.LENGTH_SHORT).show();
+				} else if (illegalFilename(fName.getText().toString())) {
+					ok.setEnabled(false);
+					Toast.makeText(view.getContext(), R.string.filename_cannot_contains, Toast.LENGTH_SHORT).show();
+				} else ok.setEnabled(fName.getText().toString().length() > 0);
+			}
+		});
+		fName.setOnEditorActionListener(new TextView.OnEditorActionListener() {
+			@Override
+			public boolean onEditorAction(TextView v, int actionId, KeyEvent event) {
+				if (ok.isEnabled())
+					if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
+						ok.performClick();
+					else
+						ok.callOnClick();
+				return true;
+			}
+		});
+	}
+
+	private static boolean illegalFilename(CharSequence e) {
+		String v = e.toString();
+		for (int i = 0; i < 32; i++) if (v.indexOf(i) >= 0) return true;
+		return v.indexOf('"') >= 0
+				|| v.indexOf('*') >= 0
+				|| v.indexOf('/') >= 0
+				|| v.indexOf(':') >= 0
+				|| v.indexOf('<') >= 0
+				|| v.indexOf('>') >= 0
+				|| v.indexOf('?') >= 0
+				|| v.indexOf('\\') >= 0
+				|| v.indexOf('|') >= 0
+				|| v.indexOf(127) >= 0;
+	}
+}
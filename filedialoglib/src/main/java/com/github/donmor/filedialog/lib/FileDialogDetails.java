@@ -0,0 +1,225 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogDetails <= [P|FileDialog]
+ * Last modified: 00:44:51 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.content.Context;
+import android.os.Handler;
+import android.text.format.DateFormat;
+import android.text.format.Formatter;
+import androidx.collection.LongSparseArray;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Loads the size and modification date of rows as they are bound, rather than of every entry up front. Rows are asked for by their position in a listing and remembered by id, so binding a row whose details are loaded allocates nothing. Sizes and dates come from the listing, and only entries the scan could not stat are read, on the loader thread; a listing served from the cache, or an entry rewritten in place, is stat'ed again row by row as it is shown, so a stale listing costs one stat per row on screen rather than one per entry. Requests made while a frame is laid out are read together in one batch on a loader thread, and results are kept until the directory changes. Must be used on the main thread.
+ */
+final class FileDialogDetails {
+
+	private static final int BATCH_SIZE = 64;
+	// Requests beyond this are for rows scrolled past long ago, and the oldest are dropped
+	private static final int MAX_PENDING = 256;
+
+	/**
+	 * Receives loaded details on the main thread.
+	 */
+	interface Listener {
+		/**
+		 * @param details The details loaded, by row id.
+		 */
+		void onDetailsLoaded(LongSparseArray<String> details);
+	}
+
+	private final Context appContext;
+	private final Listener listener;
+	private final Handler handler = FileDialogLoader.getMainHandler();
+	private final LongSparseArray<String> details = new LongSparseArray<>();
+	// Requests in the order they were made, the newest last
+	private final long[] pendingIds = new long[MAX_PENDING];
+	private final FileDialogListing[] pendingListings = new FileDialogListing[MAX_PENDING];
+	private final int[] pendingPositions = new int[MAX_PENDING];
+	private final boolean[] pendingFresh = new boolean[MAX_PENDING];
+	// Entries whose columns may be older than the files, to be stat'ed again when loaded, with the count of refreshes when each was refreshed last
+	private final LongSparseArray<Integer> stale = new LongSparseArray<>();
+	private int refreshes, refreshedAll;
+	private boolean verify;
+	private int pendingCount;
+	private boolean scheduled, running;
+	private int generation;
+
+	private final Runnable batch = new Runnable() {
+		@Override
+		public void run() {
+			scheduled = false;
+			loadBatch();
+		}
+	};
+
+	FileDialogDetails(Context context, Listener listener) {
+		appContext = context.getApplicationContext();
+		this.listener = listener;
+	}
+
+	/**
+	 * Get the details of an entry, requesting them if they are not loaded yet.
+	 *
+	 * @param id The id of the entry, as {@link FileDialogListing#id(int)} gives.
+	 * @return The details, or null until they are loaded.
+	 */
+	String get(FileDialogListing listing, int pos, long id) {
+		String d = details.get(id);
+		if (d == null) request(listing, pos, id);
+		return d;
+	}
+
+	/**
+	 * @return The details of an entry if they are loaded, without requesting them.
+	 */
+	String getLoaded(long id) {
+		return details.get(id);
+	}
+
+	/**
+	 * Request the details of an entry that will probably be shown soon.
+	 */
+	void prefetch(FileDialogListing listing, int pos) {
+		long id = listing.id(pos);
+		if (details.indexOfKey(id) < 0) request(listing, pos, id);
+	}
+
+	/**
+	 * Set whether the listing shown may hold attributes older than the files, as one served from the cache may. Its rows are then stat'ed again as their details load, and a row found changed drops the listing from the cache.
+	 */
+	void setVerify(boolean verify) {
+		this.verify = verify;
+	}
+
+	/**
+	 * Forget the details of an entry that changed.
+	 *
+	 * @param id The id of its path, as {@link FileDialogListing#id(String)} gives.
+	 */
+	void invalidate(long id) {
+		details.remove(id);
+	}
+
+	/**
+	 * Forget the details of an entry rewritten or touched in place, and stat it again when they are asked for, as the listing holds its old attributes.
+	 *
+	 * @param id The id of its path, as {@link FileDialogListing#id(String)} gives.
+	 */
+	void refresh(long id) {
+		details.remove(id);
+		stale.put(id, ++refreshes);
+	}
+
+	/**
+	 * Forget the details of every entry and stat each one again when they are asked for, as too many entries changed in place to tell them apart.
+	 */
+	void refreshAll() {
+		details.clear();
+		verify = true;
+		refreshedAll = ++refreshes;
+	}
+
+	/**
+	 * Forget everything. Called when the directory changes.
+	 */
+	void clear() {
+		generation++;
+		details.clear();
+		stale.clear();
+		verify = false;
+		Arrays.fill(pendingListings, 0, pendingCount, null);
+		pendingCount = 0;
+	}
+
+	private void request(FileDialogListing listing, int pos, long id) {
+		for (int i = 0; i < pendingCount; i++)
+			if (pendingIds[i] == id) return;
+		if (pendingCount == MAX_PENDING) {
+			pendingCount--;
+			System.arraycopy(pendingIds, 1, pendingIds, 0, pendingCount);
+			System.arraycopy(pendingListings, 1, pendingListings, 0, pendingCount);
+			System.arraycopy(pendingPositions, 1, pendingPositions, 0, pendingCount);
+			System.arraycopy(pendingFresh, 1, pendingFresh, 0, pendingCount);
+		}
+		pendingIds[pendingCount] = id;
+		pendingListings[pendingCount] = listing;
+		pendingPositions[pendingCount] = pos;
+		pendingFresh[pendingCount++] = verify || stale.get(id) != null;
+		// Rows bound in the same frame are read together
+		if (!scheduled && !running) {
+			handler.post(batch);
+			scheduled = true;
+		}
+	}
+
+	private void loadBatch() {
+		if (running || pendingCount == 0) return;
+		// The newest requests are for the rows on screen now
+		int n = Math.min(BATCH_SIZE, pendingCount);
+		pendingCount -= n;
+		final long[] ids = Arrays.copyOfRange(pendingIds, pendingCount, pendingCount + n);
+		final FileDialogListing[] listings = Arrays.copyOfRange(pendingListings, pendingCount, pendingCount + n);
+		final int[] positions = Arrays.copyOfRange(pendingPositions, pendingCount, pendingCount + n);
+		final boolean[] fresh = Arrays.copyOfRange(pendingFresh, pendingCount, pendingCount + n);
+		Arrays.fill(pendingListings, pendingCount, pendingCount + n, null);
+		running = true;
+		final int gen = generation, refreshed = refreshes;
+		FileDialogLoader.getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				final LongSparseArray<String> loaded = new LongSparseArray<>();
+				try {
+					java.text.DateFormat date = DateFormat.getDateFormat(appContext), time = DateFormat.getTimeFormat(appContext);
+					for (int i = 0; i < ids.length; i++) {
+						FileDialogListing l = listings[i];
+						int p = positions[i];
+						long size, modifiedTime;
+						if (fresh[i]) {
+							long[] attrs = l.stat(p);
+							size = attrs[0];
+							modifiedTime = attrs[1];
+							// The listing is stale, and the next dialog scans the directory again
+							if (l.dir != null && l.time(p) != FileDialogListing.UNKNOWN && (l.time(p) != modifiedTime || !l.isDir(p) && l.size(p) != size))
+								FileDialogCache.remove(l.dir);
+						} else {
+							// The scan read most attributes already, only those it could not are read now
+							if (l.time(p) == FileDialogListing.UNKNOWN) l.readAttributes(new int[]{p});
+							size = l.size(p);
+							modifiedTime = l.time(p);
+						}
+						Date modified = new Date(modifiedTime);
+						String when = date.format(modified) + ' ' + time.format(modified);
+						loaded.put(ids[i], l.isDir(p) ? when : Formatter.formatShortFileSize(appContext, size) + "  " + when);
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				handler.post(new Runnable() {
+					@Override
+					public void run() {
+						running = false;
+						if (gen == generation) {
+							for (int i = 0; i < loaded.size(); i++) {
+								long id = loaded.keyAt(i);
+								Integer r = stale.get(id);
+								// Refreshed again while loading, what was read may be older than the file
+								if (refreshedAll > refreshed || r != null && r > refreshed) continue;
+								details.put(id, loaded.valueAt(i));
+								stale.remove(id);
+							}
+							listener.onDetailsLoaded(loaded);
+						}
+						loadBatch();
+					}
+				});
+			}
+		});
+	}
+}
@@ -1,6 +1,6 @@
 /*
  * com.github.donmor.filedialog.lib.FileDialogFilter <= [P|FileDialog]
- * Last modified: 15:32:28 2019/05/10
+ * Last modified: 00:58:40 2026/10/18
  * Copyright (c) 2019 donmor
  */
 
@@ -16,12 +16,16 @@ public class FileDialogFilter {
 	 */
 	public final String name;
 	/**
-	 * The extension names related.
+	 * The extension names related. Matching uses them as they were when the filter was made, as they are read into a trie once; later changes to the array are not seen by {@link #meetExtensions(String)}.
 	 */
 	public final String[] extensions;
 
 	private static final String ALL = "*";
 
+	// Made once from the extensions as passed in
+	private final boolean all;
+	private final Node suffixes;
+
 	/**
 	 * Instantiates a new File dialog filter.
 	 *
@@ -31,6 +35,11 @@ public class FileDialogFilter {
 	public FileDialogFilter(String name, String[] extensions) {
 		this.name = name;
 		this.extensions = extensions;
+		all = extensions.length > 0 && extensions[0].equals(ALL);
+		suffixes = new Node();
+		if (!all)
+			for (String e : extensions)
+				suffixes.insert(e);
 	}
 
 	/**
@@ -40,9 +49,57 @@ public class FileDialogFilter {
 	 * @return The value will be true if the extension of the file equals one of extensions, or false if the extension of the file equals nothing.
 	 */
 	public boolean meetExtensions(String filename) throws ArrayIndexOutOfBoundsException {
-		if (extensions[0].equals(ALL)) return true;
-		for (String e : extensions)
-			if (filename.toLowerCase().endsWith(e)) return true;
-		return false;
+		if (extensions.length == 0) throw new ArrayIndexOutOfBoundsException(0);
+		if (all) return true;
+		return suffixes.matchesSuffixOf(filename);
+	}
+
+	/**
+	 * A trie of the extensions spelled backwards, so that a filename is matched against all of them in one walk from its last char. Chars are compared lower-cased.
+	 */
+	private static final class Node {
+		private char[] keys = new char[0];
+		private Node[] children = new Node[0];
+		private boolean terminal;
+
+		void insert(String extension) {
+			Node n = this;
+			for (int i = extension.length() - 1; i >= 0; i--)
+				n = n.childOrCreate(Character.toLowerCase(extension.charAt(i)));
+			n.terminal = true;
+		}
+
+		boolean matchesSuffixOf(String filename) {
+			Node n = this;
+			if (n.terminal) return true;
+			for (int i = filename.length() - 1; i >= 0; i--) {
+				n = n.child(Character.toLowerCase(filename.charAt(i)));
+				if (n == null) return false;
+				if (n.terminal) return true;
+			}
+			return false;
+		}
+
+		private Node child(char c) {
+			for (int i = 0; i < keys.length; i++)
+				if (keys[i] == c) return children[i];
+			return null;
+		}
+
+		private Node childOrCreate(char c) {
+			Node n = child(c);
+			if (n != null) return n;
+			n = new Node();
+			int len = keys.length;
+			char[] k = new char[len + 1];
+			Node[] ch = new Node[len + 1];
+			System.arraycopy(keys, 0, k, 0, len);
+			System.arraycopy(children, 0, ch, 0, len);
+			k[len] = c;
+			ch[len] = n;
+			keys = k;
+			children = ch;
+			return n;
+		}
 	}
 }
@@ -0,0 +1,84 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogHistory <= [P|FileDialog]
+ * Last modified: 23:55:21 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Environment;
+
+import java.io.File;
+
+/**
+ * Remembers the last directory and filter of dialogs under keys chosen by the caller, in the shared preferences of the app, and lists remembered directories into the listing cache ahead of time.
+ */
+final class FileDialogHistory {
+
+	private static final String PREFS = "com.github.donmor.filedialog.history";
+	private static final String DIR = "dir:", FILTER = "filter:";
+
+	private FileDialogHistory() {
+	}
+
+	private static SharedPreferences prefs(Context context) {
+		return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+	}
+
+	/**
+	 * @return The remembered directory, or null if none is remembered or it is gone.
+	 */
+	static File getDir(Context context, String key) {
+		String path = prefs(context).getString(DIR + key, null);
+		if (path == null) return null;
+		File dir = new File(path);
+		return dir.isDirectory() ? dir : null;
+	}
+
+	/**
+	 * @return The remembered filter index, or -1 if none is remembered.
+	 */
+	static int getFilterIndex(Context context, String key) {
+		return prefs(context).getInt(FILTER + key, -1);
+	}
+
+	static void put(Context context, String key, File dir, int filterIndex) {
+		prefs(context).edit()
+				.putString(DIR + key, dir.getAbsolutePath())
+				.putInt(FILTER + key, filterIndex)
+				.apply();
+	}
+
+	/**
+	 * List the remembered directory of a key into the listing cache on a loader thread. Reading the preferences is done there too, so that later reads on the main thread find them loaded.
+	 *
+	 * @param key        The key, or null to list the fallback.
+	 * @param fallback   The directory to list if nothing is remembered, or null for the default SD card directory.
+	 * @param showHidden Whether the dialogs that will use the listing show hidden files.
+	 */
+	static void prefetch(Context context, final String key, final File fallback, final boolean showHidden) {
+		final Context appContext = context.getApplicationContext();
+		FileDialogLoader.getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					File dir = key != null ? getDir(appContext, key) : null;
+					if (dir == null) dir = fallback != null && fallback.isDirectory() ? fallback : Environment.getExternalStorageDirectory();
+					if (dir != null) list(dir, showHidden);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
+
+	// Scan and sort the way dialogs do, so that they find the listing in the cache
+	private static void list(File dir, boolean showHidden) {
+		long lastModified = dir.lastModified();
+		FileDialogListing.Builder b = FileDialogScanner.scan(dir, showHidden, null);
+		if (b == null) return;
+		FileDialogCache.put(dir, showHidden, lastModified, b.build(FileDialogAdapter.newSorter()), true);
+	}
+}
@@ -0,0 +1,430 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogListing <= [P|FileDialog]
+ * Last modified: 00:47:09 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.StructStat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * The entries of a directory held in a few arrays instead of an object each: the names share one char buffer, cut by offsets, and sizes, modification times and flags are columns. Entries are referred to by their position; the directories and the files are kept as arrays of positions in name order. {@link File} objects are only made for the entries asked for, so the heap a listing takes grows with the length of the names rather than with the number of entries. Immutable once built, except that attributes the scan did not read are filled in once.
+ */
+final class FileDialogListing {
+
+	/**
+	 * Attributes not read yet.
+	 */
+	static final long UNKNOWN = Long.MIN_VALUE;
+	static final int[] NONE = new int[0];
+	static final FileDialogListing EMPTY = new Builder(null).build(NONE, NONE);
+
+	private static final byte FLAG_DIR = 1;
+	private static final long FNV_BASIS = 0xcbf29ce484222325L, FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * The directory, or null if the names are full paths.
+	 */
+	final File dir;
+	private final char[] chars;
+	// Entry i spans [offsets[i], offsets[i + 1]) of chars
+	private final int[] offsets;
+	private final byte[] flags;
+	private final long[] sizes, times;
+	private final int count;
+	/**
+	 * The positions of the directories and of the files. Shared, must not be modified.
+	 */
+	final int[] dirs, files;
+	// FNV-1a state after the path of the directory and a separator, as in the paths of its Files
+	private final long idSeed;
+
+	private FileDialogListing(File dir, char[] chars, int[] offsets, byte[] flags, long[] sizes, long[] times, int count, int[] dirs, int[] files) {
+		this.dir = dir;
+		this.chars = chars;
+		this.offsets = offsets;
+		this.flags = flags;
+		this.sizes = sizes;
+		this.times = times;
+		this.count = count;
+		this.dirs = dirs;
+		this.files = files;
+		String prefix = dir == null ? "" : dir.getPath().endsWith("/") ? dir.getPath() : dir.getPath() + '/';
+		idSeed = hash(FNV_BASIS, prefix);
+	}
+
+	int count() {
+		return count;
+	}
+
+	boolean isDir(int pos) {
+		return (flags[pos] & FLAG_DIR) != 0;
+	}
+
+	String name(int pos) {
+		return new String(chars, offsets[pos], offsets[pos + 1] - offsets[pos]);
+	}
+
+	int nameLength(int pos) {
+		return offsets[pos + 1] - offsets[pos];
+	}
+
+	char nameChar(int pos, int i) {
+		return chars[offsets[pos] + i];
+	}
+
+	/**
+	 * The buffer the names are cut from, to show them without making Strings. Shared, must not be modified.
+	 */
+	char[] nameBuffer() {
+		return chars;
+	}
+
+	/**
+	 * @return Where the name of an entry starts in {@link #nameBuffer()}.
+	 */
+	int nameStart(int pos) {
+		return offsets[pos];
+	}
+
+	/**
+	 * Make the File of an entry. Every call makes a new one.
+	 */
+	File file(int pos) {
+		return dir != null ? new File(dir, name(pos)) : new File(name(pos));
+	}
+
+	/**
+	 * @return The names of the given entries.
+	 */
+	String[] names(int[] positions) {
+		String[] out = new String[positions.length];
+		for (int i = 0; i < positions.length; i++)
+			out[i] = name(positions[i]);
+		return out;
+	}
+
+	/**
+	 * @return The Files of the given entries.
+	 */
+	File[] toFiles(int[] positions) {
+		File[] out = new File[positions.length];
+		for (int i = 0; i < positions.length; i++)
+			out[i] = file(positions[i]);
+		return out;
+	}
+
+	/**
+	 * @return The id of the path of an entry, as {@link #id(String)} gives for the path of its File. Nothing is allocated.
+	 */
+	long id(int pos) {
+		long h = idSeed;
+		for (int i = offsets[pos], end = offsets[pos + 1]; i < end; i++) {
+			h ^= chars[i];
+			h *= FNV_PRIME;
+		}
+		return h;
+	}
+
+	/**
+	 * @return A 64-bit FNV-1a hash of a path. 32-bit String hashes collide too often in listings of tens of thousands of paths.
+	 */
+	static long id(String path) {
+		return hash(FNV_BASIS, path);
+	}
+
+	private static long hash(long h, String s) {
+		for (int i = 0; i < s.length(); i++) {
+			h ^= s.charAt(i);
+			h *= FNV_PRIME;
+		}
+		return h;
+	}
+
+	/**
+	 * @return The size, or {@link #UNKNOWN} until read.
+	 */
+	long size(int pos) {
+		return sizes[pos];
+	}
+
+	/**
+	 * @return The modification time in milliseconds, or {@link #UNKNOWN} until read.
+	 */
+	long time(int pos) {
+		return times[pos];
+	}
+
+	/**
+	 * Read the attributes the scan did not, with one stat per entry. Entries that vanished meanwhile read as empty and dated 0. Runs on a loader thread.
+	 */
+	synchronized void readAttributes(int[] positions) {
+		boolean nio = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O, useOs = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+		for (int pos : positions) {
+			if (times[pos] != UNKNOWN) continue;
+			FileDialogLoader.checkCanceled();
+			File f = file(pos);
+			if (nio) NioStat.read(f, sizes, times, pos);
+			else if (useOs) OsStat.read(f, sizes, times, pos);
+			else {
+				sizes[pos] = f.length();
+				times[pos] = f.lastModified();
+			}
+		}
+	}
+
+	/**
+	 * Stat an entry again, as {@link #readAttributes(int[])} would, leaving its columns alone. Entries gone read as empty and dated 0. Runs on a loader thread.
+	 *
+	 * @return The size and the modification time.
+	 */
+	long[] stat(int pos) {
+		long[] size = new long[1], time = new long[1];
+		File f = file(pos);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) NioStat.read(f, size, time, 0);
+		else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) OsStat.read(f, size, time, 0);
+		else {
+			size[0] = f.length();
+			time[0] = f.lastModified();
+		}
+		return new long[]{size[0], time[0]};
+	}
+
+	/**
+	 * @return A builder holding a copy of the entries, at the same positions, to add more to.
+	 */
+	Builder toBuilder() {
+		Builder b = new Builder(dir);
+		int room = count + count / 8 + 16;
+		b.chars = Arrays.copyOf(chars, offsets[count] + offsets[count] / 8 + 256);
+		b.offsets = Arrays.copyOf(offsets, room + 1);
+		b.flags = Arrays.copyOf(flags, room);
+		b.sizes = Arrays.copyOf(sizes, room);
+		b.times = Arrays.copyOf(times, room);
+		b.count = count;
+		return b;
+	}
+
+	/**
+	 * @return The approximate heap the listing holds, in bytes.
+	 */
+	long estimate() {
+		return 96 + 2L * chars.length + 4L * offsets.length + flags.length + 8L * (sizes.length + times.length) + 4L * (dirs.length + files.length);
+	}
+
+	/**
+	 * The name of an entry read in place, pointed at another entry instead of making a String of each. Not thread safe.
+	 */
+	static final class Name implements CharSequence {
+		private char[] chars = new char[0];
+		private int start, length;
+
+		Name set(FileDialogListing listing, int pos) {
+			chars = listing.chars;
+			start = listing.offsets[pos];
+			length = listing.offsets[pos + 1] - start;
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return chars[start + index];
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			return new String(chars, start + from, to - from);
+		}
+
+		@Override
+		public String toString() {
+			return new String(chars, start, length);
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+	private static final class OsStat {
+		static void read(File f, long[] sizes, long[] times, int i) {
+			try {
+				StructStat st = Os.stat(f.getPath());
+				sizes[i] = st.st_size;
+				times[i] = st.st_mtime * 1000;
+			} catch (ErrnoException e) {
+				sizes[i] = times[i] = 0;
+			}
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.O)
+	private static final class NioStat {
+		static void read(File f, long[] sizes, long[] times, int i) {
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+				sizes[i] = attrs.size();
+				times[i] = attrs.lastModifiedTime().toMillis();
+			} catch (IOException | SecurityException e) {
+				sizes[i] = times[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Collects entries as they are read. Not thread safe, but listings taken with {@link #snapshot(int[], int[])} may be read on other threads while more entries are added.
+	 */
+	static final class Builder {
+		private final File dir;
+		private char[] chars = new char[4096];
+		private int[] offsets = new int[257];
+		private byte[] flags = new byte[256];
+		private long[] sizes = new long[256], times = new long[256];
+		private int count;
+
+		/**
+		 * @param dir The directory, or null if names will be full paths.
+		 */
+		Builder(File dir) {
+			this.dir = dir;
+		}
+
+		/**
+		 * @param size The size, or {@link #UNKNOWN}.
+		 * @param time The modification time in milliseconds, or {@link #UNKNOWN}.
+		 * @return The position of the entry.
+		 */
+		int add(String name, boolean isDir, long size, long time) {
+			int len = name.length(), start = offsets[count];
+			ensure(len);
+			name.getChars(0, len, chars, start);
+			return append(start + len, isDir, size, time);
+		}
+
+		/**
+		 * Add an entry of another listing, without making its name.
+		 */
+		int add(FileDialogListing src, int pos) {
+			int from = src.offsets[pos], len = src.offsets[pos + 1] - from, start = offsets[count];
+			ensure(len);
+			System.arraycopy(src.chars, from, chars, start, len);
+			return append(start + len, src.isDir(pos), src.sizes[pos], src.times[pos]);
+		}
+
+		private void ensure(int len) {
+			int start = offsets[count];
+			if (start + len > chars.length) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, start + len));
+			if (count + 1 == flags.length) {
+				int n = flags.length * 2;
+				offsets = Arrays.copyOf(offsets, n + 1);
+				flags = Arrays.copyOf(flags, n);
+				sizes = Arrays.copyOf(sizes, n);
+				times = Arrays.copyOf(times, n);
+			}
+		}
+
+		private int append(int end, boolean isDir, long size, long time) {
+			flags[count] = isDir ? FLAG_DIR : 0;
+			sizes[count] = size;
+			times[count] = time;
+			offsets[++count] = end;
+			return count - 1;
+		}
+
+		int count() {
+			return count;
+		}
+
+		boolean isDir(int pos) {
+			return (flags[pos] & FLAG_DIR) != 0;
+		}
+
+		String name(int pos) {
+			return new String(chars, offsets[pos], offsets[pos + 1] - offsets[pos]);
+		}
+
+		/**
+		 * @return The positions of the directories or of the files, in the order they were added.
+		 */
+		int[] positions(boolean isDir) {
+			return positions(isDir, 0);
+		}
+
+		/**
+		 * @return The positions of the directories or of the files added from a position on, in the order they were added.
+		 */
+		int[] positions(boolean isDir, int from) {
+			int n = 0;
+			for (int i = from; i < count; i++)
+				if (isDir(i) == isDir) n++;
+			int[] out = new int[n];
+			n = 0;
+			for (int i = from; i < count; i++)
+				if (isDir(i) == isDir) out[n++] = i;
+			return out;
+		}
+
+		/**
+		 * @return The names of the given entries.
+		 */
+		String[] names(int[] positions) {
+			String[] out = new String[positions.length];
+			for (int i = 0; i < positions.length; i++)
+				out[i] = name(positions[i]);
+			return out;
+		}
+
+		/**
+		 * @return The Files of the directories or of the files, in the order they were added.
+		 */
+		File[] toFiles(boolean isDir) {
+			int[] positions = positions(isDir);
+			File[] out = new File[positions.length];
+			for (int i = 0; i < positions.length; i++)
+				out[i] = dir != null ? new File(dir, name(positions[i])) : new File(name(positions[i]));
+			return out;
+		}
+
+		/**
+		 * The entries added so far, sharing the arrays of the builder.
+		 *
+		 * @param dirs  The positions of the directories, in the order to keep.
+		 * @param files The positions of the files, in the order to keep.
+		 */
+		FileDialogListing snapshot(int[] dirs, int[] files) {
+			return new FileDialogListing(dir, chars, offsets, flags, sizes, times, count, dirs, files);
+		}
+
+		/**
+		 * The entries added, in arrays of their own size.
+		 *
+		 * @param dirs  The positions of the directories, in the order to keep.
+		 * @param files The positions of the files, in the order to keep, or null for the order they were added.
+		 */
+		FileDialogListing build(int[] dirs, int[] files) {
+			return new FileDialogListing(dir, Arrays.copyOf(chars, offsets[count]), Arrays.copyOf(offsets, count + 1), Arrays.copyOf(flags, count),
+					Arrays.copyOf(sizes, count), Arrays.copyOf(times, count), count, dirs, files != null ? files : positions(false));
+		}
+
+		/**
+		 * The entries added, with directories and files sorted.
+		 */
+		FileDialogListing build(FileDialogSorter sorter) {
+			int[] d = positions(true), f = positions(false);
+			return build(sorter.sort(names(d), d), sorter.sort(names(f), f));
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogLoader <= [P|FileDialog]
+ * Last modified: 11:05:13 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs directory scans off the UI thread. Each loader keeps at most one scan alive: starting a new one cancels the previous one, and results of a canceled scan are never delivered.
+ */
+final class FileDialogLoader {
+
+	/**
+	 * The work to do on a loader thread.
+	 */
+	abstract static class Job<T> {
+		private FileDialogLoader owner;
+		private int generation;
+
+		abstract T run() throws Exception;
+
+		/**
+		 * Run an intermediate update on the main thread, unless this job has been canceled by then.
+		 */
+		final void publish(final Runnable update) {
+			final FileDialogLoader o = owner;
+			final int gen = generation;
+			getMainHandler().post(new Runnable() {
+				@Override
+				public void run() {
+					if (gen == o.generation) update.run();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Receives the result on the main thread. The result will be null if the job failed.
+	 */
+	interface Callback<T> {
+		void onLoaded(T result);
+	}
+
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "FileDialog-loader-" + count.incrementAndGet());
+			t.setDaemon(true);
+			t.setPriority(Thread.NORM_PRIORITY - 1);
+			return t;
+		}
+	});
+
+	private static Handler mainHandler;
+
+	static Handler getMainHandler() {
+		synchronized (FileDialogLoader.class) {
+			if (mainHandler == null) mainHandler = new Handler(Looper.getMainLooper());
+			return mainHandler;
+		}
+	}
+
+	static ExecutorService getExecutor() {
+		return EXECUTOR;
+	}
+
+	private Future<?> pending;
+	private int generation;
+
+	/**
+	 * Start a job, canceling the one in flight. Must be called on the main thread.
+	 */
+	<T> void load(final Job<T> job, final Callback<T> callback) {
+		cancel();
+		final int gen = generation;
+		final Handler handler = getMainHandler();
+		job.owner = this;
+		job.generation = gen;
+		pending = EXECUTOR.submit(new Runnable() {
+			@Override
+			public void run() {
+				T result = null;
+				try {
+					result = job.run();
+				} catch (CancellationException e) {
+					return;
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				if (Thread.currentThread().isInterrupted()) return;
+				final T r = result;
+				handler.post(new Runnable() {
+					@Override
+					public void run() {
+						if (gen != generation) return;
+						pending = null;
+						callback.onLoaded(r);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Cancel the job in flight, if any. Must be called on the main thread.
+	 */
+	void cancel() {
+		generation++;
+		if (pending != null) {
+			pending.cancel(true);
+			pending = null;
+		}
+	}
+
+	boolean isLoading() {
+		return pending != null;
+	}
+
+	/**
+	 * Called by jobs between units of work to stop as soon as they are canceled.
+	 *
+	 * @throws CancellationException if the current job has been canceled.
+	 */
+	static void checkCanceled() {
+		if (Thread.currentThread().isInterrupted()) throw new CancellationException();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogMetrics <= [P|FileDialog]
+ * Last modified: 20:52:18 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Times the hot paths for the listener set by {@link FileDialog#setMetricsListener(FileDialog.OnMetricsListener)}, and marks them as {@link Trace} sections meanwhile. With no listener set, every call costs one field read and nothing is traced.
+ */
+final class FileDialogMetrics {
+
+	private static final String[] SECTIONS = {
+			"FileDialog:probeStorage", "FileDialog:scan", "FileDialog:filter", "FileDialog:sort", "FileDialog:firstFrame",
+			"FileDialog:inflateRow", "FileDialog:bindRow", "FileDialog:cacheHit", "FileDialog:cacheMiss",
+	};
+	private static final boolean TRACE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+	// Sections that begin and end on different threads or frames
+	private static final boolean ASYNC_TRACE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
+
+	private static volatile FileDialog.OnMetricsListener listener;
+
+	private FileDialogMetrics() {
+	}
+
+	static void setListener(FileDialog.OnMetricsListener l) {
+		listener = l;
+	}
+
+	/**
+	 * Start timing a phase on the current thread.
+	 *
+	 * @return The start time, to be passed to {@link #end(int, long, int)} on the same thread, or 0 if no listener is set.
+	 */
+	static long begin(int metric) {
+		if (listener == null) return 0;
+		if (TRACE) Trace.beginSection(SECTIONS[metric]);
+		return now();
+	}
+
+	/**
+	 * Finish timing a phase. Call it in a finally block, so sections stay balanced when the phase throws.
+	 *
+	 * @param start The value returned by {@link #begin(int)}.
+	 * @param count How many entries the phase handled, or -1 if it was canceled, which is not reported.
+	 */
+	static void end(int metric, long start, int count) {
+		if (start == 0) return;
+		long nanos = System.nanoTime() - start;
+		if (TRACE) Trace.endSection();
+		if (count >= 0) report(metric, nanos, count);
+	}
+
+	/**
+	 * Start timing a phase that may end on another thread or in a later frame.
+	 *
+	 * @return The start time, to be passed to {@link #endAsync(int, long, int)}, or 0 if no listener is set.
+	 */
+	static long beginAsync(int metric) {
+		if (listener == null) return 0;
+		long t = now();
+		if (ASYNC_TRACE) Trace.beginAsyncSection(SECTIONS[metric], (int) t);
+		return t;
+	}
+
+	static void endAsync(int metric, long start, int count) {
+		if (start == 0) return;
+		long nanos = System.nanoTime() - start;
+		if (ASYNC_TRACE) Trace.endAsyncSection(SECTIONS[metric], (int) start);
+		if (count >= 0) report(metric, nanos, count);
+	}
+
+	/**
+	 * Report an event that is only counted.
+	 */
+	static void count(int metric, int count) {
+		if (listener != null) report(metric, 0, count);
+	}
+
+	private static void report(int metric, long nanos, int count) {
+		FileDialog.OnMetricsListener l = listener;
+		if (l == null) return;
+		try {
+			l.onMetric(metric, nanos, count);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// 0 means not measured
+	private static long now() {
+		long t = System.nanoTime();
+		return t != 0 ? t : 1;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogMimeResolver <= [P|FileDialog]
+ * Last modified: 01:41:12 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.webkit.MimeTypeMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves MIME types from raw filenames. The extension is taken after the last dot of the name instead of parsing it as a URL, so names with spaces or '#' are classified correctly, and every extension is looked up in {@link MimeTypeMap} only once per process.
+ */
+final class FileDialogMimeResolver {
+
+	// ConcurrentHashMap does not take null values
+	private static final String NONE = "";
+	// The value of FileDialog.MIME_ALL, repeated so the resolver builds without the dialog classes
+	private static final String ALL = "*/*";
+	private static final ConcurrentHashMap<String, String> MIME_TYPES = new ConcurrentHashMap<>();
+
+	private FileDialogMimeResolver() {
+	}
+
+	/**
+	 * Get the extension of a filename.
+	 *
+	 * @param filename The filename, without directories.
+	 * @return The lower-cased extension without the dot, or null if the name has none.
+	 */
+	static String extensionOf(String filename) {
+		int dot = filename.lastIndexOf('.');
+		if (dot < 0 || dot == filename.length() - 1) return null;
+		return lowerTail(filename, dot + 1);
+	}
+
+	// Folds char by char, the same way extensions are compared
+	private static String lowerTail(CharSequence s, int start) {
+		char[] c = new char[s.length() - start];
+		for (int i = 0; i < c.length; i++)
+			c[i] = Character.toLowerCase(s.charAt(start + i));
+		return new String(c);
+	}
+
+	/**
+	 * Get the MIME type of a lower-cased extension.
+	 *
+	 * @param extension The extension without the dot.
+	 * @return The MIME type, or null if unknown.
+	 */
+	static String getMimeTypeFromExtension(String extension) {
+		if (extension == null) return null;
+		String m = MIME_TYPES.get(extension);
+		if (m == null) {
+			m = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension);
+			if (m == null) m = NONE;
+			MIME_TYPES.put(extension, m);
+		}
+		return m.equals(NONE) ? null : m;
+	}
+
+	/**
+	 * Get the MIME type of a file by its name.
+	 *
+	 * @param filename The filename, without directories.
+	 * @return The MIME type, or null if unknown.
+	 */
+	static String getMimeType(String filename) {
+		return getMimeTypeFromExtension(extensionOf(filename));
+	}
+
+	/**
+	 * A MIME type filter compiled into the set of extensions it accepts. {@link MimeTypeMap} cannot list the extensions of a type, so the set is filled as extensions are met; after that, matching a filename is a single probe of an open-addressing table keyed by the case-folded chars after the last dot, with no allocation.
+	 */
+	static final class Filter {
+		private final String mimeType;
+		private final boolean all, prefix;
+		// Replaced, never changed, once published, so lookups need no lock
+		private volatile Table table = new Table(new String[32], new boolean[32], 0);
+
+		Filter(String mimeType) {
+			this(mimeType, false);
+		}
+
+		/**
+		 * @param prefix Accept every type starting with the given one, such as "image/".
+		 */
+		Filter(String mimeType, boolean prefix) {
+			this.mimeType = mimeType;
+			this.prefix = prefix;
+			all = ALL.equals(mimeType);
+		}
+
+		/**
+		 * @param filename The filename, without directories. Names read in place from a listing are not copied.
+		 */
+		boolean accept(CharSequence filename) {
+			if (all) return true;
+			int start = lastDot(filename) + 1;
+			if (start == 0 || start == filename.length()) return false;
+			int h = hash(filename, start);
+			Table t = table;
+			int i = t.find(filename, start, h);
+			if (i >= 0) return t.accepted[i];
+			String ext = lowerTail(filename, start);
+			String m = getMimeTypeFromExtension(ext);
+			boolean a = prefix ? m != null && m.startsWith(mimeType) : mimeType.equals(m);
+			put(ext, h, a);
+			return a;
+		}
+
+		private static int lastDot(CharSequence s) {
+			for (int i = s.length() - 1; i >= 0; i--)
+				if (s.charAt(i) == '.') return i;
+			return -1;
+		}
+
+		// Writers copy the table under the lock, so none of them loses another's entry
+		private synchronized void put(String ext, int h, boolean a) {
+			Table t = table;
+			if (t.find(ext, 0, h) >= 0) return;
+			int length = (t.count + 1) * 2 > t.keys.length ? t.keys.length * 2 : t.keys.length;
+			String[] keys = new String[length];
+			boolean[] accepted = new boolean[length];
+			for (int i = 0; i < t.keys.length; i++)
+				if (t.keys[i] != null) Table.insert(keys, accepted, t.keys[i], hash(t.keys[i], 0), t.accepted[i]);
+			Table.insert(keys, accepted, ext, h, a);
+			table = new Table(keys, accepted, t.count + 1);
+		}
+
+		/**
+		 * An open addressing table of lower case extensions, keeping whether each one is accepted.
+		 */
+		private static final class Table {
+			final String[] keys;
+			final boolean[] accepted;
+			final int count;
+
+			Table(String[] keys, boolean[] accepted, int count) {
+				this.keys = keys;
+				this.accepted = accepted;
+				this.count = count;
+			}
+
+			/**
+			 * @return The slot of the extension starting at start, or -1 if it is not in the table.
+			 */
+			int find(CharSequence s, int start, int h) {
+				int mask = keys.length - 1;
+				for (int i = h & mask; keys[i] != null; i = (i + 1) & mask)
+					if (regionMatches(keys[i], s, start)) return i;
+				return -1;
+			}
+
+			static void insert(String[] keys, boolean[] accepted, String ext, int h, boolean a) {
+				int mask = keys.length - 1;
+				int i = h & mask;
+				while (keys[i] != null) i = (i + 1) & mask;
+				keys[i] = ext;
+				accepted[i] = a;
+			}
+		}
+
+		private static int hash(CharSequence s, int start) {
+			int h = 0;
+			for (int i = start; i < s.length(); i++)
+				h = 31 * h + Character.toLowerCase(s.charAt(i));
+			return h ^ (h >>> 16);
+		}
+
+		private static boolean regionMatches(String key, CharSequence filename, int start) {
+			if (key.length() != filename.length() - start) return false;
+			for (int i = 0; i < key.length(); i++)
+				if (key.charAt(i) != Character.toLowerCase(filename.charAt(start + i))) return false;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogOrder <= [P|FileDialog]
+ * Last modified: 23:44:53 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.util.Locale;
+
+/**
+ * The orders a listing can be shown in, besides the natural name order it is kept in. Sizes and dates come from the columns of the listing, which the scan fills on API 21+; otherwise they are read for the whole listing at once, with one stat per entry, the first time an order needs them. The index of every order is kept once it is made, so switching between orders never touches the disk again and costs one sort at most. Thread safe; indexes are made on loader threads.
+ */
+final class FileDialogOrder {
+
+	/**
+	 * The keys, as in {@link FileDialog#SORT_NAME} and the like.
+	 */
+	static final int NAME = 0, NATURAL = 1, SIZE = 2, DATE = 3, TYPE = 4;
+	private static final int KEYS = 5;
+
+	// Below this, merging is slower than inserting
+	private static final int INSERTION_SORT = 16;
+
+	/**
+	 * Told when an index is made, to count the heap it takes.
+	 */
+	interface Listener {
+		/**
+		 * @param bytes The heap the index takes.
+		 */
+		void onIndexMade(long bytes);
+	}
+
+	final FileDialogListing listing;
+	/**
+	 * The positions of the entries in the listing, in natural name order. Shared, must not be modified.
+	 */
+	final int[] base;
+	private final boolean dirs;
+	private final int[][] indexes = new int[KEYS][];
+	private Listener listener;
+
+	/**
+	 * @param listing The listing.
+	 * @param base    The positions of the entries, sorted by {@link FileDialogAdapter#newSorter()}.
+	 * @param dirs    Whether the entries are directories, which have no size or type and keep their name order for those.
+	 */
+	FileDialogOrder(FileDialogListing listing, int[] base, boolean dirs) {
+		this.listing = listing;
+		this.base = base;
+		this.dirs = dirs;
+	}
+
+	/**
+	 * Make the order of the same entries copied into another listing, keeping the indexes made so far.
+	 *
+	 * @param base The positions of the entries in the other listing, in the same order as in this one.
+	 */
+	synchronized FileDialogOrder moveTo(FileDialogListing listing, int[] base) {
+		FileDialogOrder order = new FileDialogOrder(listing, base, dirs);
+		System.arraycopy(indexes, 0, order.indexes, 0, KEYS);
+		return order;
+	}
+
+	/**
+	 * Make the order of the entries after some were removed and others added, updating the indexes made so far instead of sorting again: the entries kept keep their relative order, and each one added is put in place by binary search. Runs on a loader thread.
+	 *
+	 * @param listing The listing, holding the entries kept at the same positions as the listing of this order.
+	 * @param base    The positions of the entries, sorted by {@link FileDialogAdapter#newSorter()}.
+	 */
+	synchronized FileDialogOrder edit(FileDialogListing listing, int[] base) {
+		FileDialogOrder order = new FileDialogOrder(listing, base, dirs);
+		// Index in the new base of each position, plus one
+		int[] indexOf = new int[listing.count()];
+		for (int i = 0; i < base.length; i++)
+			indexOf[base[i]] = i + 1;
+		int[] map = new int[this.base.length];
+		boolean[] kept = new boolean[base.length];
+		int keptCount = 0;
+		for (int i = 0; i < map.length; i++) {
+			map[i] = indexOf[this.base[i]] - 1;
+			if (map[i] >= 0) {
+				kept[map[i]] = true;
+				keptCount++;
+			}
+		}
+		int[] added = new int[base.length - keptCount];
+		for (int i = 0, n = 0; i < base.length; i++)
+			if (!kept[i]) added[n++] = i;
+		if (added.length > 0 && (indexes[SIZE] != null || indexes[DATE] != null)) {
+			int[] positions = new int[added.length];
+			for (int i = 0; i < added.length; i++)
+				positions[i] = base[added[i]];
+			listing.readAttributes(positions);
+		}
+		FileDialogSorter names = indexes[NAME] != null ? new FileDialogSorter(false, Locale.getDefault()) : null;
+		for (int key = 0; key < KEYS; key++) {
+			if (indexes[key] == null) continue;
+			int[] index = new int[base.length];
+			int size = 0;
+			for (int i : indexes[key])
+				if (map[i] >= 0) index[size++] = map[i];
+			for (int i : added) {
+				int at = order.insertionPoint(key, index, size, i, names);
+				System.arraycopy(index, at, index, at + 1, size - at);
+				index[at] = i;
+				size++;
+			}
+			order.indexes[key] = index;
+		}
+		return order;
+	}
+
+	// Where an entry goes in an index, by the key and then by name order
+	private int insertionPoint(int key, int[] index, int size, int i, FileDialogSorter names) {
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = compare(key, index[mid], i, names);
+			if (c == 0) c = index[mid] - i;
+			if (c < 0) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	private int compare(int key, int a, int b, FileDialogSorter names) {
+		switch (key) {
+			case NAME:
+				FileDialogSorter.Key[] keys = names.keys(new String[]{listing.name(base[a]), listing.name(base[b])});
+				return FileDialogSorter.KEY_COMPARATOR.compare(keys[0], keys[1]);
+			case SIZE:
+				return compareLongs(listing.size(base[a]), listing.size(base[b]));
+			case DATE:
+				return compareLongs(listing.time(base[a]), listing.time(base[b]));
+			case TYPE:
+				return extension(listing.name(base[a])).compareTo(extension(listing.name(base[b])));
+			default:
+				return 0;
+		}
+	}
+
+	int size() {
+		return base.length;
+	}
+
+	/**
+	 * @param listener Told of the indexes made from now on, or null. Orders made from this one do not inherit it.
+	 */
+	synchronized void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return Whether the key orders these entries. Directories are only ordered by name and date.
+	 */
+	boolean orders(int key) {
+		return !dirs || key != SIZE && key != TYPE;
+	}
+
+	/**
+	 * @return Whether {@link #index(int)} returns at once.
+	 */
+	synchronized boolean isReady(int key) {
+		return key == NATURAL || !orders(key) || indexes[key] != null;
+	}
+
+	/**
+	 * Get the indexes in base of the entries in ascending order of a key, making the index on first use. Entries equal by the key keep their name order. Call it off the main thread unless {@link #isReady(int)}.
+	 *
+	 * @return The index, or null if the order is the natural name order of base.
+	 */
+	synchronized int[] index(int key) {
+		if (key == NATURAL || !orders(key)) return null;
+		if (indexes[key] == null) {
+			indexes[key] = makeIndex(key);
+			if (listener != null) listener.onIndexMade(4L * base.length);
+		}
+		return indexes[key];
+	}
+
+	private int[] makeIndex(int key) {
+		int[] index = new int[base.length];
+		for (int i = 0; i < index.length; i++)
+			index[i] = i;
+		switch (key) {
+			case NAME:
+				final FileDialogSorter.Key[] keys = new FileDialogSorter(false, Locale.getDefault()).keys(listing.names(base));
+				sort(index, new IndexComparator() {
+					@Override
+					public int compare(int a, int b) {
+						return FileDialogSorter.KEY_COMPARATOR.compare(keys[a], keys[b]);
+					}
+				});
+				break;
+			case SIZE:
+				listing.readAttributes(base);
+				sort(index, new IndexComparator() {
+					@Override
+					public int compare(int a, int b) {
+						return compareLongs(listing.size(base[a]), listing.size(base[b]));
+					}
+				});
+				break;
+			case DATE:
+				listing.readAttributes(base);
+				sort(index, new IndexComparator() {
+					@Override
+					public int compare(int a, int b) {
+						return compareLongs(listing.time(base[a]), listing.time(base[b]));
+					}
+				});
+				break;
+			case TYPE:
+				final String[] types = new String[base.length];
+				for (int i = 0; i < types.length; i++)
+					types[i] = extension(listing.name(base[i]));
+				sort(index, new IndexComparator() {
+					@Override
+					public int compare(int a, int b) {
+						return types[a].compareTo(types[b]);
+					}
+				});
+				break;
+		}
+		return index;
+	}
+
+	/**
+	 * @return The extension in lower case, or an empty string. The dot of hidden names does not start one.
+	 */
+	static String extension(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+	}
+
+	private static int compareLongs(long l1, long l2) {
+		return l1 < l2 ? -1 : l1 > l2 ? 1 : 0;
+	}
+
+	private interface IndexComparator {
+		int compare(int a, int b);
+	}
+
+	// A stable merge sort of positions, so that no position is ever boxed
+	private static void sort(int[] index, IndexComparator c) {
+		int[] tmp = new int[index.length];
+		mergeSort(index, tmp, 0, index.length, c);
+	}
+
+	private static void mergeSort(int[] a, int[] tmp, int from, int to, IndexComparator c) {
+		if (to - from <= INSERTION_SORT) {
+			for (int i = from + 1; i < to; i++) {
+				int v = a[i], j = i - 1;
+				while (j >= from && c.compare(a[j], v) > 0) {
+					a[j + 1] = a[j];
+					j--;
+				}
+				a[j + 1] = v;
+			}
+			return;
+		}
+		FileDialogLoader.checkCanceled();
+		int mid = (from + to) >>> 1;
+		mergeSort(a, tmp, from, mid, c);
+		mergeSort(a, tmp, mid, to, c);
+		// Already in order, as runs of a listing often are
+		if (c.compare(a[mid - 1], a[mid]) <= 0) return;
+		System.arraycopy(a, from, tmp, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to)
+			a[k++] = c.compare(tmp[j], tmp[i]) < 0 ? tmp[j++] : tmp[i++];
+		while (i < mid) a[k++] = tmp[i++];
+		while (j < to) a[k++] = tmp[j++];
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogQuickFilter <= [P|FileDialog]
+ * Last modified: 23:49:10 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.util.ArrayList;
+
+/**
+ * Narrows a listing by the text typed in the filter field. A name matches if it contains the query, or failing that, if it contains the chars of the query in order; substring matches are ranked first. Results of previous queries are kept, so a query that only adds chars is matched against the previous result instead of the whole listing, and deleting chars returns a kept result at once.
+ */
+final class FileDialogQuickFilter {
+
+	private static final int MAX_HISTORY = 32;
+
+	// The folded names of all rows in one buffer: row i spans [offsets[i], offsets[i + 1])
+	private final char[] folded;
+	private final int[] offsets;
+	// Kept results, matched rows in row order
+	private final ArrayList<String> queries = new ArrayList<>();
+	private final ArrayList<int[]> matches = new ArrayList<>();
+
+	/**
+	 * @param names The names of the rows, in row order.
+	 */
+	FileDialogQuickFilter(String[] names) {
+		int total = 0;
+		for (String name : names)
+			total += name.length();
+		folded = new char[total];
+		offsets = new int[names.length + 1];
+		for (int i = 0, k = 0; i < names.length; i++) {
+			if ((i & 1023) == 0) FileDialogLoader.checkCanceled();
+			for (int j = 0; j < names[i].length(); j++)
+				folded[k++] = fold(names[i].charAt(j));
+			offsets[i + 1] = k;
+		}
+	}
+
+	/**
+	 * @param listing   The listing of the rows.
+	 * @param positions The positions of the rows in the listing, in row order.
+	 */
+	FileDialogQuickFilter(FileDialogListing listing, int[] positions) {
+		int total = 0;
+		for (int pos : positions)
+			total += listing.nameLength(pos);
+		folded = new char[total];
+		offsets = new int[positions.length + 1];
+		for (int i = 0, k = 0; i < positions.length; i++) {
+			if ((i & 1023) == 0) FileDialogLoader.checkCanceled();
+			for (int j = 0, len = listing.nameLength(positions[i]); j < len; j++)
+				folded[k++] = fold(listing.nameChar(positions[i], j));
+			offsets[i + 1] = k;
+		}
+	}
+
+	/**
+	 * Match the rows against a query.
+	 *
+	 * @param query The text typed, not empty.
+	 * @return The matching rows, substring matches first, each group in row order.
+	 */
+	synchronized int[] filter(String query) {
+		char[] q = fold(query);
+		String key = new String(q);
+		int[] candidates = null;
+		// The newest kept query that the new one extends gives the smallest candidate set
+		for (int i = queries.size() - 1; i >= 0; i--) {
+			String k = queries.get(i);
+			if (k.equals(key)) return rank(matches.get(i), q);
+			if (candidates == null && isSubsequence(k.toCharArray(), k.length(), q, 0, q.length)) candidates = matches.get(i);
+		}
+		int n = candidates != null ? candidates.length : offsets.length - 1;
+		int[] m = new int[n];
+		int count = 0;
+		for (int i = 0; i < n; i++) {
+			if ((i & 1023) == 0) FileDialogLoader.checkCanceled();
+			int row = candidates != null ? candidates[i] : i;
+			if (isSubsequence(q, q.length, folded, offsets[row], offsets[row + 1])) m[count++] = row;
+		}
+		int[] matched = new int[count];
+		System.arraycopy(m, 0, matched, 0, count);
+		if (queries.size() == MAX_HISTORY) {
+			queries.remove(0);
+			matches.remove(0);
+		}
+		queries.add(key);
+		matches.add(matched);
+		return rank(matched, q);
+	}
+
+	private int[] rank(int[] matched, char[] q) {
+		boolean[] substring = new boolean[matched.length];
+		int head = 0;
+		for (int i = 0; i < matched.length; i++)
+			if (substring[i] = contains(folded, offsets[matched[i]], offsets[matched[i] + 1], q)) head++;
+		int[] ranked = new int[matched.length];
+		int a = 0, b = head;
+		for (int i = 0; i < matched.length; i++)
+			ranked[substring[i] ? a++ : b++] = matched[i];
+		return ranked;
+	}
+
+	static char[] fold(String s) {
+		char[] c = new char[s.length()];
+		for (int i = 0; i < c.length; i++)
+			c[i] = fold(s.charAt(i));
+		return c;
+	}
+
+	private static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	// Whether the first len chars of q appear in s[from, to) in order
+	private static boolean isSubsequence(char[] q, int len, char[] s, int from, int to) {
+		if (len > to - from) return false;
+		int j = 0;
+		for (int i = from; i < to && j < len; i++)
+			if (s[i] == q[j]) j++;
+		return j == len;
+	}
+
+	static boolean contains(char[] s, char[] q) {
+		return contains(s, 0, s.length, q);
+	}
+
+	// Whether s[from, to) contains q
+	private static boolean contains(char[] s, int from, int to, char[] q) {
+		outer:
+		for (int i = from; i <= to - q.length; i++) {
+			for (int j = 0; j < q.length; j++)
+				if (s[i + j] != q[j]) continue outer;
+			return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogScanner <= [P|FileDialog]
+ * Last modified: 23:36:20 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.system.StructStat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Reads a directory once and splits its entries into directories and regular files in the same pass, into a {@link FileDialogListing}. Each entry costs at most one stat: NIO attributes on API 26+, {@link Os#stat} on API 21+, and {@link File#isDirectory()}/{@link File#isFile()} otherwise. The stat also gives the size and modification time, which are kept; the java.io path leaves them to be read when an order needs them.
+ */
+final class FileDialogScanner {
+
+	private FileDialogScanner() {
+	}
+
+	/**
+	 * The entries of a directory, in the order they were read.
+	 */
+	static final class Result {
+		final File[] dirs, files;
+
+		Result(File[] dirs, File[] files) {
+			this.dirs = dirs;
+			this.files = files;
+		}
+	}
+
+	/**
+	 * Receives the entries of a directory in pages while it is being scanned.
+	 */
+	interface PageListener {
+		/**
+		 * Called on the scanning thread with the entries read since the previous page.
+		 *
+		 * @param entries The entries read so far. Those from the position given on are new.
+		 * @param from    The position of the first new entry.
+		 * @param last    Whether this is the end of the scan. Only the last page may be empty.
+		 */
+		void onPage(FileDialogListing.Builder entries, int from, boolean last);
+	}
+
+	// Pages double in size so that consumers merging them do O(n log n) work in total
+	private static final int FIRST_PAGE = 256, MAX_PAGE = 16384;
+
+	/**
+	 * Scan a directory into Files. Hidden entries (names starting with '.') are dropped without being stat'ed unless showHidden is set.
+	 *
+	 * @param dir        The directory to scan.
+	 * @param showHidden Whether hidden entries are kept.
+	 * @return The dirs and files found, or null if the directory could not be read.
+	 */
+	static Result scan(File dir, boolean showHidden) {
+		FileDialogListing.Builder b = scan(dir, showHidden, null);
+		return b != null ? new Result(b.toFiles(true), b.toFiles(false)) : null;
+	}
+
+	/**
+	 * Scan a directory, handing entries to a listener in pages as they are read. Directories smaller than the first page are delivered in a single last page.
+	 *
+	 * @param dir        The directory to scan.
+	 * @param showHidden Whether hidden entries are kept.
+	 * @param listener   The listener receiving pages, or null.
+	 * @return The entries found, in the order they were read, or null if the directory could not be read.
+	 */
+	static FileDialogListing.Builder scan(File dir, boolean showHidden, PageListener listener) {
+		Pager pager = new Pager(new FileDialogListing.Builder(dir), listener);
+		boolean ok;
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) ok = NioScanner.scan(dir, showHidden, pager);
+		else ok = scanLegacy(dir, showHidden, pager);
+		if (!ok) return null;
+		pager.flush(true);
+		return pager.entries;
+	}
+
+	/**
+	 * Stat one entry of a directory and add it if it is a directory or a regular file, as a scan would.
+	 *
+	 * @return The position of the entry, or -1 if it is gone or neither.
+	 */
+	static int add(FileDialogListing.Builder entries, File dir, String name) {
+		File f = new File(dir, name);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) return NioScanner.add(entries, f.toPath(), name);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) return OsStat.add(entries, f, name);
+		if (f.isDirectory()) return entries.add(name, true, FileDialogListing.UNKNOWN, FileDialogListing.UNKNOWN);
+		if (f.isFile()) return entries.add(name, false, FileDialogListing.UNKNOWN, FileDialogListing.UNKNOWN);
+		return -1;
+	}
+
+	private static final class Pager {
+		final FileDialogListing.Builder entries;
+		private final PageListener listener;
+		private int sent, pageSize = FIRST_PAGE;
+
+		Pager(FileDialogListing.Builder entries, PageListener listener) {
+			this.entries = entries;
+			this.listener = listener;
+		}
+
+		void added(int pos) {
+			if (pos >= 0 && listener != null && entries.count() - sent >= pageSize) {
+				flush(false);
+				pageSize = Math.min(pageSize * 2, MAX_PAGE);
+			}
+		}
+
+		void flush(boolean last) {
+			if (listener == null) return;
+			int from = sent;
+			sent = entries.count();
+			listener.onPage(entries, from, last);
+		}
+	}
+
+	private static boolean scanLegacy(File dir, boolean showHidden, Pager pager) {
+		String[] names = dir.list();
+		if (names == null) return false;
+		for (String name : names) {
+			FileDialogLoader.checkCanceled();
+			if (!showHidden && isHidden(name)) continue;
+			pager.added(add(pager.entries, dir, name));
+		}
+		return true;
+	}
+
+	static boolean isHidden(String name) {
+		return name.length() > 0 && name.charAt(0) == '.';
+	}
+
+	@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+	private static final class OsStat {
+		static int add(FileDialogListing.Builder entries, File f, String name) {
+			try {
+				StructStat st = Os.stat(f.getPath());
+				boolean isDir = OsConstants.S_ISDIR(st.st_mode);
+				if (isDir || OsConstants.S_ISREG(st.st_mode)) return entries.add(name, isDir, isDir ? 0 : st.st_size, st.st_mtime * 1000);
+			} catch (ErrnoException ignored) {
+				// Dangling link or vanished entry
+			}
+			return -1;
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.O)
+	private static final class NioScanner {
+		static boolean scan(File dir, boolean showHidden, Pager pager) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath())) {
+				for (Path p : stream) {
+					FileDialogLoader.checkCanceled();
+					String name = p.getFileName().toString();
+					if (!showHidden && isHidden(name)) continue;
+					pager.added(add(pager.entries, p, name));
+				}
+				return true;
+			} catch (IOException | SecurityException e) {
+				return false;
+			}
+		}
+
+		static int add(FileDialogListing.Builder entries, Path p, String name) {
+			BasicFileAttributes attrs;
+			try {
+				attrs = Files.readAttributes(p, BasicFileAttributes.class);
+			} catch (IOException e) {
+				return -1;
+			}
+			boolean isDir = attrs.isDirectory();
+			if (isDir || attrs.isRegularFile()) return entries.add(name, isDir, isDir ? 0 : attrs.size(), attrs.lastModifiedTime().toMillis());
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogSearch <= [P|FileDialog]
+ * Last modified: 00:21:37 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches the subtree of a directory for names containing a query. A few workers take directories from a shared stack, so the walk goes depth first and the directories waiting to be read stay few; every directory is read once, by its canonical path, so symbolic link loops end. Matches are handed over in batches while the walk goes on.
+ */
+final class FileDialogSearch {
+
+	static final int DEFAULT_MAX_DEPTH = 32, DEFAULT_MAX_RESULTS = 2000;
+	private static final int MAX_WORKERS = 4;
+	// How often found matches are handed over, in milliseconds
+	private static final long BATCH_INTERVAL = 100;
+
+	private static volatile int maxDepth = DEFAULT_MAX_DEPTH, maxResults = DEFAULT_MAX_RESULTS;
+
+	/**
+	 * Decides which files are results, besides their names. Called on several threads at once.
+	 */
+	interface FileMatcher {
+		boolean accept(String name);
+	}
+
+	/**
+	 * Receives matches on the thread that runs the search.
+	 */
+	interface ResultListener {
+		/**
+		 * @param dirs  The directories found since the last call.
+		 * @param files The files found since the last call.
+		 * @param last  Whether the search is over.
+		 */
+		void onResults(File[] dirs, File[] files, boolean last);
+	}
+
+	private static final class Node {
+		final File dir;
+		final int depth;
+
+		Node(File dir, int depth) {
+			this.dir = dir;
+			this.depth = depth;
+		}
+	}
+
+	private final File root;
+	private final char[] query;
+	private final boolean showHidden, dirOnly;
+	private final FileMatcher matcher;
+	private final int depthLimit, resultLimit;
+	private final LinkedBlockingDeque<Node> stack = new LinkedBlockingDeque<>();
+	private final Set<String> visited = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	// Directories queued or being read
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicInteger found = new AtomicInteger();
+	private final ArrayList<File> dirs = new ArrayList<>(), files = new ArrayList<>();
+	private volatile boolean stopped;
+
+	/**
+	 * @param root       The directory to search under.
+	 * @param query      The text names must contain, case-insensitively. An empty query matches every name.
+	 * @param showHidden Whether to search hidden files and directories.
+	 * @param dirOnly    Only look for directories.
+	 * @param matcher    Further decides which files match. May be null.
+	 */
+	FileDialogSearch(File root, String query, boolean showHidden, boolean dirOnly, FileMatcher matcher) {
+		this.root = root;
+		this.query = FileDialogQuickFilter.fold(query);
+		this.showHidden = showHidden;
+		this.dirOnly = dirOnly;
+		this.matcher = matcher;
+		depthLimit = maxDepth;
+		resultLimit = maxResults;
+	}
+
+	/**
+	 * Set the limits of later searches.
+	 *
+	 * @param depth   How many levels below the directory to descend.
+	 * @param results How many matches to find before stopping.
+	 */
+	static void setLimits(int depth, int results) {
+		maxDepth = depth;
+		maxResults = results;
+	}
+
+	/**
+	 * Walk the subtree, blocking until the walk is over.
+	 *
+	 * @throws CancellationException if the calling thread has been interrupted, after stopping the workers.
+	 */
+	void run(ResultListener listener) {
+		pending.set(1);
+		stack.addFirst(new Node(root, 0));
+		int n = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors()));
+		Future<?>[] workers = new Future<?>[n];
+		for (int i = 0; i < n; i++)
+			workers[i] = FileDialogLoader.getExecutor().submit(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			});
+		try {
+			while (true) {
+				synchronized (this) {
+					if (!isDone()) wait(BATCH_INTERVAL);
+				}
+				FileDialogLoader.checkCanceled();
+				if (isDone()) break;
+				deliver(listener, false);
+			}
+			deliver(listener, true);
+		} catch (InterruptedException e) {
+			throw new CancellationException();
+		} finally {
+			stopped = true;
+			for (Future<?> w : workers)
+				w.cancel(true);
+		}
+	}
+
+	private boolean isDone() {
+		return stopped || pending.get() == 0;
+	}
+
+	private void deliver(ResultListener listener, boolean last) {
+		File[] d, f;
+		synchronized (dirs) {
+			if (!last && dirs.isEmpty() && files.isEmpty()) return;
+			d = dirs.toArray(new File[dirs.size()]);
+			f = files.toArray(new File[files.size()]);
+			dirs.clear();
+			files.clear();
+		}
+		listener.onResults(d, f, last);
+	}
+
+	private void work() {
+		try {
+			while (!stopped) {
+				Node node = stack.pollFirst(BATCH_INTERVAL, TimeUnit.MILLISECONDS);
+				if (node == null) {
+					if (pending.get() == 0) return;
+					continue;
+				}
+				try {
+					read(node);
+				} catch (CancellationException e) {
+					throw e;
+				} catch (IOException | RuntimeException e) {
+					// A directory that cannot be read is skipped, the worker goes on with the others
+					e.printStackTrace();
+				} finally {
+					if (pending.decrementAndGet() == 0) wake();
+				}
+			}
+		} catch (InterruptedException | CancellationException e) {
+			// Stopped by run()
+		}
+	}
+
+	private void read(Node node) throws IOException {
+		if (!visited.add(node.dir.getCanonicalPath())) return;
+		FileDialogScanner.Result r = FileDialogScanner.scan(node.dir, showHidden);
+		if (r == null) return;
+		for (File d : r.dirs) {
+			if (matches(d.getName())) add(dirs, d);
+			if (node.depth < depthLimit && !stopped) {
+				pending.incrementAndGet();
+				stack.addFirst(new Node(d, node.depth + 1));
+			}
+		}
+		if (!dirOnly)
+			for (File f : r.files) {
+				String name = f.getName();
+				if (matches(name) && (matcher == null || matcher.accept(name))) add(files, f);
+			}
+	}
+
+	private boolean matches(String name) {
+		return FileDialogQuickFilter.contains(FileDialogQuickFilter.fold(name), query);
+	}
+
+	private void add(ArrayList<File> list, File f) {
+		int count = found.incrementAndGet();
+		if (count > resultLimit) return;
+		synchronized (dirs) {
+			list.add(f);
+		}
+		if (count == resultLimit) {
+			stopped = true;
+			wake();
+		}
+	}
+
+	private synchronized void wake() {
+		notifyAll();
+	}
+}
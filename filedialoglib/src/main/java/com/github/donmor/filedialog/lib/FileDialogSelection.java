@@ -0,0 +1,149 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogSelection <= [P|FileDialog]
+ * Last modified: 23:53:37 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+
+/**
+ * The files picked in multi-select mode. Files of the listing on screen are kept as bits by row, so bulk operations touch words rather than rows; files picked in other folders or hidden by the current filter are kept by path, and come back as bits when their listing is shown again. Not thread safe.
+ */
+final class FileDialogSelection {
+
+	/**
+	 * The rows of a listing, made into Files only when asked for.
+	 */
+	interface Items {
+		int size();
+
+		File get(int row);
+
+		/**
+		 * @return {@link FileDialogListing#id(String)} of the path of the row.
+		 */
+		long getId(int row);
+	}
+
+	private static final Items EMPTY = of(new File[0]);
+
+	// Selected files outside the current listing, in the order they were picked
+	private final LinkedHashSet<File> others = new LinkedHashSet<>();
+	private final BitSet bits = new BitSet();
+	private Items items = EMPTY;
+	private int anchor = -1;
+
+	static Items of(final File[] files) {
+		return new Items() {
+			@Override
+			public int size() {
+				return files.length;
+			}
+
+			@Override
+			public File get(int row) {
+				return files[row];
+			}
+
+			@Override
+			public long getId(int row) {
+				return FileDialogListing.id(files[row].getPath());
+			}
+		};
+	}
+
+	/**
+	 * Switch to another listing. Selected rows of the old listing are kept by path, and rows of the new one that were picked before are selected again.
+	 *
+	 * @param newItems The files of the new listing, in row order.
+	 */
+	void attach(File[] newItems) {
+		attach(of(newItems));
+	}
+
+	/**
+	 * Switch to another listing. Selected rows of the old listing are kept by path, and rows of the new one that were picked before are selected again. Rows are matched by id first, so only rows likely picked before are made into Files.
+	 *
+	 * @param newItems The rows of the new listing.
+	 */
+	void attach(Items newItems) {
+		if (newItems == items) return;
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+			others.add(items.get(i));
+		bits.clear();
+		items = newItems;
+		anchor = -1;
+		if (others.isEmpty()) return;
+		long[] ids = new long[others.size()];
+		int n = 0;
+		for (File f : others)
+			ids[n++] = FileDialogListing.id(f.getPath());
+		Arrays.sort(ids);
+		for (int i = 0; i < newItems.size() && !others.isEmpty(); i++)
+			if (Arrays.binarySearch(ids, newItems.getId(i)) >= 0 && others.remove(newItems.get(i))) bits.set(i);
+	}
+
+	boolean isSelected(int row) {
+		return bits.get(row);
+	}
+
+	/**
+	 * Select or deselect a row, which becomes the anchor of the next range.
+	 */
+	void set(int row, boolean selected) {
+		bits.set(row, selected);
+		anchor = row;
+	}
+
+	/**
+	 * Select the rows from the anchor to the given row, both inclusive. Without an anchor only the row is selected.
+	 */
+	void selectRange(int row) {
+		int from = anchor >= 0 ? Math.min(anchor, row) : row, to = anchor >= 0 ? Math.max(anchor, row) : row;
+		bits.set(from, to + 1);
+		anchor = row;
+	}
+
+	void selectAll() {
+		bits.set(0, items.size());
+	}
+
+	void invert() {
+		bits.flip(0, items.size());
+	}
+
+	/**
+	 * Deselect everything, including the files of other listings.
+	 */
+	void clear() {
+		others.clear();
+		bits.clear();
+		anchor = -1;
+	}
+
+	int size() {
+		return others.size() + bits.cardinality();
+	}
+
+	boolean isAllSelected() {
+		return items.size() > 0 && bits.nextClearBit(0) >= items.size();
+	}
+
+	/**
+	 * @return The selected files: those of other listings first, in the order they were picked, then those of the current listing in row order.
+	 */
+	File[] toArray() {
+		File[] out = new File[size()];
+		int n = 0;
+		for (File f : others)
+			out[n++] = f;
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+			out[n++] = items.get(i);
+		return out;
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogSorter <= [P|FileDialog]
+ * Last modified: 23:31:47 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.io.File;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Sorts listings by name. Every entry is turned into a sort key exactly once, and its text runs are collated at most once, when they are first compared, so the whole sort stays O(n log n).
+ */
+final class FileDialogSorter {
+
+	private final boolean natural;
+	private final Collator collator;
+
+	/**
+	 * @param natural Compare digit runs by their numeric value, so "IMG_2" goes before "IMG_10".
+	 * @param locale  The locale used to collate the text runs, or null to compare case-folded chars.
+	 */
+	FileDialogSorter(boolean natural, Locale locale) {
+		this.natural = natural;
+		if (locale != null) {
+			collator = Collator.getInstance(locale);
+			collator.setStrength(Collator.SECONDARY);
+		} else collator = null;
+	}
+
+	/**
+	 * Sort the positions of entries of a listing in place.
+	 *
+	 * @param names     The names of the entries.
+	 * @param positions The positions of the entries, parallel to names.
+	 * @return The same positions array.
+	 */
+	int[] sort(String[] names, int[] positions) {
+		if (positions.length < 2) return positions;
+		Key[] keys = toKeys(names, positions, newCollator());
+		Arrays.sort(keys, KEY_COMPARATOR);
+		for (int i = 0; i < positions.length; i++)
+			positions[i] = keys[i].pos;
+		return positions;
+	}
+
+	// Collator instances are not thread safe, and sorting may run on loader threads
+	private Collator newCollator() {
+		return collator != null ? (Collator) collator.clone() : null;
+	}
+
+	/**
+	 * Turn names into sort keys, to be compared with {@link #KEY_COMPARATOR}. The position of each key is its index.
+	 */
+	Key[] keys(String[] names) {
+		Key[] keys = new Key[names.length];
+		Collator c = newCollator();
+		for (int i = 0; i < names.length; i++)
+			keys[i] = new Key(null, i, names[i], natural, c);
+		return keys;
+	}
+
+	private Key[] toKeys(File[] src, Collator c) {
+		Key[] keys = new Key[src.length];
+		for (int i = 0; i < src.length; i++)
+			keys[i] = new Key(src[i], i, src[i].getName(), natural, c);
+		return keys;
+	}
+
+	private Key[] toKeys(String[] names, int[] positions, Collator c) {
+		Key[] keys = new Key[names.length];
+		for (int i = 0; i < names.length; i++)
+			keys[i] = new Key(null, positions[i], names[i], natural, c);
+		return keys;
+	}
+
+	/**
+	 * A sorted list of names, read one at a time.
+	 */
+	interface Names {
+		int size();
+
+		String get(int i);
+	}
+
+	/**
+	 * Find a name in a sorted list, building keys only for the entries probed. Their text runs are only collated as far as they are compared.
+	 *
+	 * @param sorted The list, sorted by this sorter.
+	 * @param name   The name to look for.
+	 * @return The index of the name, or (-(insertion point) - 1) if it is not in the list.
+	 */
+	int binarySearch(Names sorted, String name) {
+		Collator c = newCollator();
+		Key key = new Key(null, 0, name, natural, c);
+		int lo = 0, hi = sorted.size() - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = KEY_COMPARATOR.compare(new Key(null, 0, sorted.get(mid), natural, c), key);
+			if (cmp < 0) lo = mid + 1;
+			else if (cmp > 0) hi = mid - 1;
+			else return mid;
+		}
+		return -(lo + 1);
+	}
+
+	/**
+	 * Create an accumulator that keeps a sorted run while entries arrive in batches.
+	 */
+	Accumulator accumulator() {
+		return new Accumulator();
+	}
+
+	/**
+	 * Keeps entries sorted as batches arrive: every batch is sorted on its own and merged into the run, so feeding batches of growing size costs O(n log n) in total. Batches are either all files or all positions of a listing. Not thread safe.
+	 */
+	final class Accumulator {
+		private final Collator c = newCollator();
+		private Key[] keys = new Key[0];
+		private int size;
+
+		void add(File[] batch) {
+			if (batch.length > 0) merge(toKeys(batch, c));
+		}
+
+		/**
+		 * @param names     The names of the entries.
+		 * @param positions The positions of the entries in their listing, parallel to names.
+		 */
+		void add(String[] names, int[] positions) {
+			if (positions.length > 0) merge(toKeys(names, positions, c));
+		}
+
+		private void merge(Key[] b) {
+			Arrays.sort(b, KEY_COMPARATOR);
+			Key[] merged = new Key[size + b.length];
+			int i = 0, j = 0, k = 0;
+			while (i < size && j < b.length)
+				merged[k++] = KEY_COMPARATOR.compare(b[j], keys[i]) < 0 ? b[j++] : keys[i++];
+			while (i < size) merged[k++] = keys[i++];
+			while (j < b.length) merged[k++] = b[j++];
+			keys = merged;
+			size = merged.length;
+		}
+
+		int size() {
+			return size;
+		}
+
+		/**
+		 * @return The entries received so far, sorted.
+		 */
+		File[] toArray() {
+			File[] out = new File[size];
+			for (int i = 0; i < size; i++)
+				out[i] = keys[i].file;
+			return out;
+		}
+
+		/**
+		 * @return The positions received so far, sorted.
+		 */
+		int[] toPositions() {
+			int[] out = new int[size];
+			for (int i = 0; i < size; i++)
+				out[i] = keys[i].pos;
+			return out;
+		}
+	}
+
+	static final class Key {
+		// The file, or null if the key is of an entry of a listing
+		final File file;
+		// The position of the entry in its listing or array
+		final int pos;
+		final String name;
+		final char[] chars;
+		// Run boundaries: run i spans [runs[i], runs[i + 1])
+		final int[] runs;
+		final boolean digitFirst;
+		// Collation keys of text runs, made on first comparison, null when collating is disabled
+		final CollationKey[] collated;
+		private final Collator collator;
+
+		Key(File file, int pos, String name, boolean natural, Collator collator) {
+			this.file = file;
+			this.collator = collator;
+			this.pos = pos;
+			this.name = name;
+			int len = name.length();
+			chars = new char[len];
+			for (int i = 0; i < len; i++)
+				chars[i] = Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+			if (natural && len > 0) {
+				int count = 1;
+				for (int i = 1; i < len; i++)
+					if (isDigit(chars[i]) != isDigit(chars[i - 1])) count++;
+				runs = new int[count + 1];
+				int r = 1;
+				for (int i = 1; i < len; i++)
+					if (isDigit(chars[i]) != isDigit(chars[i - 1])) runs[r++] = i;
+				runs[count] = len;
+				digitFirst = isDigit(chars[0]);
+			} else {
+				runs = new int[]{0, len};
+				digitFirst = false;
+			}
+			collated = collator != null ? new CollationKey[runs.length - 1] : null;
+		}
+
+		// Most comparisons are decided by the first runs, so the others are never collated
+		CollationKey collated(int run) {
+			if (collated[run] == null) collated[run] = collator.getCollationKey(name.substring(runs[run], runs[run + 1]));
+			return collated[run];
+		}
+
+		int runCount() {
+			return runs.length - 1;
+		}
+
+		boolean isDigitRun(int run) {
+			return digitFirst == ((run & 1) == 0);
+		}
+	}
+
+	static final Comparator<Key> KEY_COMPARATOR = new Comparator<Key>() {
+		@Override
+		public int compare(Key k1, Key k2) {
+			int n = Math.min(k1.runCount(), k2.runCount());
+			int tie = 0;
+			for (int i = 0; i < n; i++) {
+				boolean d1 = k1.isDigitRun(i), d2 = k2.isDigitRun(i);
+				if (d1 != d2) return d1 ? -1 : 1;
+				int s1 = k1.runs[i], e1 = k1.runs[i + 1], s2 = k2.runs[i], e2 = k2.runs[i + 1];
+				int c;
+				if (d1) {
+					int z1 = skipZeros(k1.chars, s1, e1), z2 = skipZeros(k2.chars, s2, e2);
+					c = (e1 - z1) - (e2 - z2);
+					if (c == 0) c = compareChars(k1.chars, z1, e1, k2.chars, z2, e2);
+					// "007" and "7" are equal in value, prefer the shorter one only if nothing else differs
+					if (c == 0 && tie == 0) tie = (z1 - s1) - (z2 - s2);
+				} else if (k1.collated != null && k2.collated != null)
+					c = k1.collated(i).compareTo(k2.collated(i));
+				else c = compareChars(k1.chars, s1, e1, k2.chars, s2, e2);
+				if (c != 0) return c;
+			}
+			int c = k1.runCount() - k2.runCount();
+			if (c != 0) return c;
+			if (tie != 0) return tie;
+			return k1.name.compareTo(k2.name);
+		}
+	};
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int skipZeros(char[] a, int s, int e) {
+		while (s < e - 1 && a[s] == '0') s++;
+		return s;
+	}
+
+	private static int compareChars(char[] a1, int s1, int e1, char[] a2, int s2, int e2) {
+		int n = Math.min(e1 - s1, e2 - s2);
+		for (int i = 0; i < n; i++) {
+			char c1 = a1[s1 + i], c2 = a2[s2 + i];
+			if (c1 != c2) return c1 - c2;
+		}
+		return (e1 - s1) - (e2 - s2);
+	}
+}
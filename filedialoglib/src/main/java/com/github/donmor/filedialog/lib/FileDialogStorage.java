@@ -0,0 +1,388 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogStorage <= [P|FileDialog]
+ * Last modified: 01:21:44 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.StatFs;
+import android.os.storage.StorageManager;
+import android.text.TextUtils;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The process-wide registry of storage volumes. The reflected StorageManager method and the probed volumes are kept until a volume is mounted, unmounted or ejected, or until {@link #invalidate()} is called. Volumes are probed in parallel, each on its own loader thread, and callers stop waiting after a timeout, so a sleeping or damaged drive cannot hold up the others. A volume still probing is waited on again instead of probed once more, so a drive that never answers holds one thread rather than one per call.
+ */
+final class FileDialogStorage {
+
+	private static final String METHOD_GET_VOLUME_PATHS = "getVolumePaths";
+
+	/**
+	 * How long to wait for volumes before reporting the slow ones as pending, in milliseconds.
+	 */
+	static final long DEFAULT_TIMEOUT = 1500;
+
+	/**
+	 * Receives probe progress. Called on a probing thread, in order, while the probe holds its lock, so implementations must only hand the data off.
+	 */
+	interface ProbeListener {
+		/**
+		 * @param volumes  The volumes known so far. Volumes that did not answer yet are left out before the timeout and reported as pending after it.
+		 * @param finished Whether every volume has answered. Called with true exactly once.
+		 */
+		void onProbed(FileDialogVolume[] volumes, boolean finished);
+	}
+
+	private static Method getVolumePaths;
+	private static boolean receiverRegistered;
+	// Indexed by ignoreReadOnly
+	private static final FileDialogVolume[][] volumes = new FileDialogVolume[2][];
+	private static int generation;
+	// Volumes being probed, keyed by ignoreReadOnly and path
+	private static final HashMap<String, VolumeProbe> probing = new HashMap<>();
+
+	private FileDialogStorage() {
+	}
+
+	private static final BroadcastReceiver MEDIA_RECEIVER = new BroadcastReceiver() {
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			invalidate();
+		}
+	};
+
+	/**
+	 * Get the paths of the volumes that answered in time, probing them only if they are not cached.
+	 *
+	 * @param context        A Context.
+	 * @param ignoreReadOnly Whether read-only volumes are included.
+	 * @return The volume paths, or null if volumes could not be listed.
+	 */
+	static File[] getVolumes(Context context, boolean ignoreReadOnly) {
+		FileDialogVolume[] v = getVolumeInfo(context, ignoreReadOnly, DEFAULT_TIMEOUT, null);
+		if (v == null) return null;
+		File[] files = new File[v.length];
+		int i = 0;
+		for (FileDialogVolume volume : v)
+			if (!volume.pending) files[i++] = volume.path;
+		File[] files1 = new File[i];
+		System.arraycopy(files, 0, files1, 0, i);
+		return files1;
+	}
+
+	/**
+	 * Get the volumes if they are cached, without probing or blocking. Safe to call on the main thread.
+	 *
+	 * @param ignoreReadOnly Whether read-only volumes are included.
+	 * @return The volumes, or null if they are not cached.
+	 */
+	static synchronized FileDialogVolume[] getCachedVolumeInfo(boolean ignoreReadOnly) {
+		FileDialogVolume[] v = volumes[ignoreReadOnly ? 1 : 0];
+		return v != null ? v.clone() : null;
+	}
+
+	/**
+	 * Get the volumes, probing them in parallel if they are not cached. Blocks until all volumes answered or the timeout passed.
+	 *
+	 * @param context        A Context.
+	 * @param ignoreReadOnly Whether read-only volumes are included.
+	 * @param timeout        How long to wait, in milliseconds.
+	 * @param listener       Receives progress, including the volumes that answer after this method returned. May be null.
+	 * @return The volumes, with the ones still probing marked pending, or null if volumes could not be listed.
+	 */
+	static FileDialogVolume[] getVolumeInfo(Context context, boolean ignoreReadOnly, long timeout, ProbeListener listener) {
+		int slot = ignoreReadOnly ? 1 : 0;
+		int gen;
+		synchronized (FileDialogStorage.class) {
+			registerReceiver(context);
+			if (volumes[slot] != null) {
+				if (listener != null) listener.onProbed(volumes[slot].clone(), true);
+				return volumes[slot].clone();
+			}
+			gen = generation;
+		}
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_STORAGE_PROBE);
+		FileDialogVolume[] v = null;
+		try {
+			String[] paths;
+			try {
+				paths = listPaths(context);
+			} catch (Exception e) {
+				e.printStackTrace();
+				File externalFolder = Environment.getExternalStorageDirectory();
+				if (externalFolder == null) return null;
+				paths = new String[]{externalFolder.getAbsolutePath()};
+				ignoreReadOnly = true;
+			}
+			if (paths == null) return null;
+			Probe probe = new Probe(paths, ignoreReadOnly, listener, slot, gen);
+			probe.start();
+			return v = probe.await(timeout);
+		} finally {
+			FileDialogMetrics.end(FileDialog.METRIC_STORAGE_PROBE, t, v != null ? v.length : -1);
+		}
+	}
+
+	/**
+	 * Probe the volumes on a loader thread and report progress on the main thread.
+	 */
+	static void getVolumeInfoAsync(Context context, final boolean ignoreReadOnly, final long timeout, final FileDialog.OnStorageProbedListener listener) {
+		final Context appContext = context.getApplicationContext();
+		final Handler handler = FileDialogLoader.getMainHandler();
+		FileDialogLoader.getExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				FileDialogVolume[] v = getVolumeInfo(appContext, ignoreReadOnly, timeout, new ProbeListener() {
+					@Override
+					public void onProbed(final FileDialogVolume[] volumes, final boolean finished) {
+						handler.post(new Runnable() {
+							@Override
+							public void run() {
+								listener.onStorageProbed(volumes, finished);
+							}
+						});
+					}
+				});
+				if (v == null) handler.post(new Runnable() {
+					@Override
+					public void run() {
+						listener.onStorageProbed(new FileDialogVolume[0], true);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Forget the cached volumes, so that the next call probes them again.
+	 */
+	static synchronized void invalidate() {
+		volumes[0] = volumes[1] = null;
+		probing.clear();
+		generation++;
+	}
+
+	private static void registerReceiver(Context context) {
+		if (receiverRegistered) return;
+		IntentFilter filter = new IntentFilter();
+		filter.addAction(Intent.ACTION_MEDIA_MOUNTED);
+		filter.addAction(Intent.ACTION_MEDIA_UNMOUNTED);
+		filter.addAction(Intent.ACTION_MEDIA_EJECT);
+		filter.addAction(Intent.ACTION_MEDIA_REMOVED);
+		filter.addAction(Intent.ACTION_MEDIA_BAD_REMOVAL);
+		filter.addDataScheme("file");
+		try {
+			context.getApplicationContext().registerReceiver(MEDIA_RECEIVER, filter);
+			receiverRegistered = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static synchronized Method getVolumePathsMethod() throws NoSuchMethodException {
+		if (getVolumePaths == null) {
+			Method m = StorageManager.class.getDeclaredMethod(METHOD_GET_VOLUME_PATHS);
+			m.setAccessible(true);
+			getVolumePaths = m;
+		}
+		return getVolumePaths;
+	}
+
+	private static String[] listPaths(Context context) throws Exception {
+		StorageManager storageManager = (StorageManager) context.getSystemService(Context.STORAGE_SERVICE);
+		Object result = getVolumePathsMethod().invoke(storageManager);
+		if (!(result instanceof String[])) return null;
+		String[] pathArray = (String[]) result;
+		String[] paths = new String[pathArray.length];
+		int i = 0;
+		for (String path : pathArray)
+			if (!TextUtils.isEmpty(path)) paths[i++] = path;
+		String[] paths1 = new String[i];
+		System.arraycopy(paths, 0, paths1, 0, i);
+		return paths1;
+	}
+
+	/**
+	 * Check one volume.
+	 *
+	 * @return The volume, or null if it is missing, empty, or read-only while read-only volumes are not wanted.
+	 */
+	private static FileDialogVolume probeVolume(String path, boolean ignoreReadOnly) {
+		File file = new File(path);
+		if (!file.exists()) return null;
+		StatFs statFs = new StatFs(path);
+		long total, free;
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+			total = (long) statFs.getBlockCount() * statFs.getBlockSize();
+			free = (long) statFs.getAvailableBlocks() * statFs.getBlockSize();
+		} else {
+			total = statFs.getBlockCountLong() * statFs.getBlockSizeLong();
+			free = statFs.getAvailableBlocksLong() * statFs.getBlockSizeLong();
+		}
+		boolean writable = file.canWrite();
+		if (total == 0 || !(ignoreReadOnly || writable)) return null;
+		return new FileDialogVolume(file, total, free, writable, false);
+	}
+
+	private static final FileDialogVolume REJECTED = FileDialogVolume.pending(null);
+
+	/**
+	 * The probe of one volume, which rounds of probing that list the volume wait on until it answers.
+	 */
+	private static final class VolumeProbe implements Runnable {
+		private final String key, path;
+		private final boolean ignoreReadOnly;
+		// Guarded by this
+		private final ArrayList<Probe> probes = new ArrayList<>();
+		private boolean started, done;
+		private FileDialogVolume result;
+
+		VolumeProbe(String key, String path, boolean ignoreReadOnly) {
+			this.key = key;
+			this.path = path;
+			this.ignoreReadOnly = ignoreReadOnly;
+		}
+
+		/**
+		 * Report to a round of probing when the volume answers, starting the probe if nobody did yet.
+		 */
+		void attach(Probe probe) {
+			boolean start, answered;
+			synchronized (this) {
+				answered = done;
+				start = !done && !started;
+				if (!done) probes.add(probe);
+				started = true;
+			}
+			if (start) FileDialogLoader.getExecutor().execute(this);
+			else if (answered) probe.complete(this, result);
+		}
+
+		@Override
+		public void run() {
+			FileDialogVolume v = null;
+			try {
+				v = probeVolume(path, ignoreReadOnly);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			synchronized (FileDialogStorage.class) {
+				if (probing.get(key) == this) probing.remove(key);
+			}
+			Probe[] waiting;
+			synchronized (this) {
+				done = true;
+				result = v;
+				waiting = probes.toArray(new Probe[probes.size()]);
+				probes.clear();
+			}
+			for (Probe probe : waiting)
+				probe.complete(this, v);
+		}
+	}
+
+	/**
+	 * One round of probing: a task per volume, shared with the other rounds in flight, and results kept in volume order.
+	 */
+	private static final class Probe {
+		private final String[] paths;
+		private final boolean ignoreReadOnly;
+		private final ProbeListener listener;
+		private final int slot, gen;
+		// null while probing, REJECTED if the volume is left out
+		private final FileDialogVolume[] results;
+		private final VolumeProbe[] tasks;
+		private int remaining;
+		private boolean timedOut;
+
+		Probe(String[] paths, boolean ignoreReadOnly, ProbeListener listener, int slot, int gen) {
+			this.paths = paths;
+			this.ignoreReadOnly = ignoreReadOnly;
+			this.listener = listener;
+			this.slot = slot;
+			this.gen = gen;
+			results = new FileDialogVolume[paths.length];
+			tasks = new VolumeProbe[paths.length];
+			remaining = paths.length;
+		}
+
+		void start() {
+			if (paths.length == 0) {
+				complete(null, null);
+				return;
+			}
+			// All tasks are known before any of them reports, as a volume probed already reports at once
+			synchronized (FileDialogStorage.class) {
+				for (int i = 0; i < paths.length; i++) {
+					String key = (ignoreReadOnly ? '1' : '0') + paths[i];
+					tasks[i] = probing.get(key);
+					if (tasks[i] == null) probing.put(key, tasks[i] = new VolumeProbe(key, paths[i], ignoreReadOnly));
+				}
+			}
+			for (VolumeProbe task : tasks)
+				task.attach(this);
+		}
+
+		private synchronized void complete(VolumeProbe task, FileDialogVolume v) {
+			boolean changed = task == null;
+			for (int i = 0; i < paths.length; i++) {
+				if (tasks[i] != task || results[i] != null) continue;
+				results[i] = v != null ? v : REJECTED;
+				remaining--;
+				changed = true;
+			}
+			// The same volume listed twice
+			if (!changed) return;
+			boolean finished = remaining == 0;
+			FileDialogVolume[] snapshot = snapshot();
+			if (finished) {
+				notifyAll();
+				synchronized (FileDialogStorage.class) {
+					if (gen == generation) volumes[slot] = snapshot.clone();
+				}
+			}
+			if (listener != null && (finished || v != null)) listener.onProbed(snapshot, finished);
+		}
+
+		synchronized FileDialogVolume[] await(long timeout) {
+			long deadline = System.currentTimeMillis() + timeout;
+			long left;
+			try {
+				while (remaining > 0 && (left = deadline - System.currentTimeMillis()) > 0)
+					wait(left);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (remaining > 0) {
+				timedOut = true;
+				if (listener != null) listener.onProbed(snapshot(), false);
+			}
+			return snapshot();
+		}
+
+		private FileDialogVolume[] snapshot() {
+			FileDialogVolume[] v = new FileDialogVolume[paths.length];
+			int n = 0;
+			for (int i = 0; i < paths.length; i++) {
+				if (results[i] == REJECTED) continue;
+				if (results[i] != null) v[n++] = results[i];
+				else if (timedOut) v[n++] = FileDialogVolume.pending(new File(paths[i]));
+			}
+			FileDialogVolume[] v1 = new FileDialogVolume[n];
+			System.arraycopy(v, 0, v1, 0, n);
+			return v1;
+		}
+	}
+}
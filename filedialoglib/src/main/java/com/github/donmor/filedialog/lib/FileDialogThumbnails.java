@@ -0,0 +1,272 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogThumbnails <= [P|FileDialog]
+ * Last modified: 01:06:12 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.MediaMetadataRetriever;
+import android.os.Build;
+import android.os.Handler;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thumbnails of image and video files, shared by all dialogs. Decoding runs on two low-priority workers that take the newest request first, so the rows on screen are served before those flung past; images are decoded subsampled close to the target size. Decoded thumbnails are kept in memory within a byte budget, and optionally on disk, keyed by path, modification time and size.
+ */
+final class FileDialogThumbnails {
+
+	private static final String DISK_DIR = "filedialog-thumbnails";
+	private static final long MAX_DISK_SIZE = 16 * 1024 * 1024;
+	// The disk cache is trimmed after this many writes
+	private static final int TRIM_INTERVAL = 64;
+
+	/**
+	 * Receives a thumbnail on the main thread.
+	 */
+	interface Callback {
+		/**
+		 * @param file      The file requested.
+		 * @param thumbnail The thumbnail, or null if the file could not be decoded.
+		 */
+		void onThumbnail(File file, Bitmap thumbnail);
+	}
+
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingDeque<Runnable>() {
+		// Last in, first out
+		@Override
+		public boolean offer(Runnable r) {
+			return offerFirst(r);
+		}
+	}, new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "FileDialog-thumbnail-" + count.incrementAndGet());
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		}
+	});
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	private static final LruCache<String, Bitmap> MEMORY = new LruCache<String, Bitmap>((int) Math.min(Runtime.getRuntime().maxMemory() / 16, 32 * 1024 * 1024)) {
+		@Override
+		protected int sizeOf(String key, Bitmap value) {
+			return value.getByteCount();
+		}
+	};
+
+	private static final FileDialogMimeResolver.Filter IMAGES = new FileDialogMimeResolver.Filter("image/", true), VIDEOS = new FileDialogMimeResolver.Filter("video/", true);
+
+	private static volatile boolean diskCache;
+	private static int writes;
+
+	private FileDialogThumbnails() {
+	}
+
+	static void setDiskCacheEnabled(boolean enabled) {
+		diskCache = enabled;
+	}
+
+	/**
+	 * Whether a file may have a thumbnail, judged by its name. Nothing is allocated once the extension has been met.
+	 */
+	static boolean isSupported(CharSequence name) {
+		return IMAGES.accept(name) || VIDEOS.accept(name);
+	}
+
+	/**
+	 * Get a thumbnail from memory. Cheap enough to call while binding, as nothing is read from the disk.
+	 *
+	 * @param modified The modification time of the file, or {@link FileDialogListing#UNKNOWN} if not known to be current, in which case nothing is returned and {@link #load} looks in memory once it has read the file.
+	 * @param length   The size of the file.
+	 */
+	static Bitmap getCached(File file, long modified, long length) {
+		return modified != FileDialogListing.UNKNOWN ? MEMORY.get(memoryKey(file, modified, length)) : null;
+	}
+
+	/**
+	 * Make a thumbnail in background, or take it from memory.
+	 *
+	 * @param size     The largest width or height, in pixels.
+	 * @param modified The modification time of the file, or {@link FileDialogListing#UNKNOWN} to read it.
+	 * @param length   The size of the file.
+	 * @return The task, to be canceled when the row is recycled.
+	 */
+	static Future<?> load(Context context, final File file, final int size, final long modified, final long length, final Callback callback) {
+		final File diskDir = new File(context.getCacheDir(), DISK_DIR);
+		final Handler handler = FileDialogLoader.getMainHandler();
+		return EXECUTOR.submit(new Runnable() {
+			@Override
+			public void run() {
+				Bitmap b = null;
+				String key = modified != FileDialogListing.UNKNOWN ? memoryKey(file, modified, length) : memoryKey(file, file.lastModified(), file.length());
+				try {
+					b = MEMORY.get(key);
+					if (b == null) b = make(file, size, diskCache ? diskDir : null);
+				} catch (CancellationException e) {
+					// The row was recycled
+					return;
+				} catch (Exception | OutOfMemoryError e) {
+					e.printStackTrace();
+				}
+				if (Thread.currentThread().isInterrupted()) return;
+				if (b != null) MEMORY.put(key, b);
+				final Bitmap thumbnail = b;
+				handler.post(new Runnable() {
+					@Override
+					public void run() {
+						callback.onThumbnail(file, thumbnail);
+					}
+				});
+			}
+		});
+	}
+
+	private static Bitmap make(File file, int size, File diskDir) throws Exception {
+		File cached = null;
+		if (diskDir != null) {
+			cached = new File(diskDir, diskKey(file, size));
+			if (cached.isFile()) {
+				Bitmap b = BitmapFactory.decodeFile(cached.getPath(), null);
+				if (b != null) return b;
+			}
+		}
+		FileDialogLoader.checkCanceled();
+		String m = FileDialogMimeResolver.getMimeType(file.getName());
+		Bitmap b = m != null && m.startsWith("video/") ? decodeVideo(file, size) : decodeImage(file, size);
+		if (b == null) return null;
+		if (cached != null) store(b, cached, diskDir);
+		return b;
+	}
+
+	private static Bitmap decodeImage(File file, int size) {
+		BitmapFactory.Options o = new BitmapFactory.Options();
+		o.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(file.getPath(), o);
+		if (o.outWidth <= 0 || o.outHeight <= 0) return null;
+		int sample = 1;
+		while (Math.max(o.outWidth, o.outHeight) / (sample * 2) >= size)
+			sample *= 2;
+		FileDialogLoader.checkCanceled();
+		o.inJustDecodeBounds = false;
+		o.inSampleSize = sample;
+		return fit(BitmapFactory.decodeFile(file.getPath(), o), size);
+	}
+
+	private static Bitmap decodeVideo(File file, int size) {
+		MediaMetadataRetriever r = new MediaMetadataRetriever();
+		try {
+			r.setDataSource(file.getPath());
+			// Older versions can only decode the frame at full size, which is scaled down afterwards
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) return fit(ScaledFrame.get(r, size), size);
+			return fit(r.getFrameAtTime(), size);
+		} finally {
+			r.release();
+		}
+	}
+
+	@TargetApi(Build.VERSION_CODES.O_MR1)
+	private static final class ScaledFrame {
+		// The frame is decoded within the target size, keeping its aspect ratio
+		static Bitmap get(MediaMetadataRetriever r, int size) {
+			return r.getScaledFrameAtTime(-1, MediaMetadataRetriever.OPTION_CLOSEST_SYNC, size, size);
+		}
+	}
+
+	// Scale down to the target size, keeping the aspect ratio
+	private static Bitmap fit(Bitmap b, int size) {
+		if (b == null) return null;
+		int w = b.getWidth(), h = b.getHeight(), max = Math.max(w, h);
+		if (max <= size) return b;
+		Bitmap s = Bitmap.createScaledBitmap(b, Math.max(1, w * size / max), Math.max(1, h * size / max), true);
+		if (s != b) b.recycle();
+		return s;
+	}
+
+	// A file rewritten gets another key, so what was made of it before is never served
+	private static String memoryKey(File file, long modified, long length) {
+		return file.getPath() + '\n' + modified + '\n' + length;
+	}
+
+	private static String diskKey(File file, int size) {
+		String k = file.getAbsolutePath() + '\n' + file.lastModified() + '\n' + file.length() + '\n' + size;
+		// 64-bit FNV-1a, as for row ids
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < k.length(); i++) {
+			h ^= k.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return Long.toHexString(h);
+	}
+
+	private static void store(Bitmap b, File cached, File diskDir) {
+		if (!diskDir.isDirectory() && !diskDir.mkdirs()) return;
+		File tmp = new File(diskDir, cached.getName() + ".tmp");
+		try {
+			OutputStream out = new FileOutputStream(tmp);
+			try {
+				b.compress(b.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, 85, out);
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(cached)) tmp.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+			tmp.delete();
+		}
+		boolean trim;
+		synchronized (FileDialogThumbnails.class) {
+			trim = ++writes % TRIM_INTERVAL == 0;
+		}
+		if (trim) trim(diskDir);
+	}
+
+	// Delete the least recently written thumbnails beyond the disk budget
+	private static void trim(File diskDir) {
+		File[] files = diskDir.listFiles();
+		if (files == null) return;
+		final long[] modified = new long[files.length];
+		Integer[] order = new Integer[files.length];
+		long total = 0;
+		for (int i = 0; i < files.length; i++) {
+			modified[i] = files[i].lastModified();
+			order[i] = i;
+			total += files[i].length();
+		}
+		if (total <= MAX_DISK_SIZE) return;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return modified[a] < modified[b] ? -1 : modified[a] == modified[b] ? 0 : 1;
+			}
+		});
+		for (int i = 0; i < order.length && total > MAX_DISK_SIZE; i++) {
+			File f = files[order[i]];
+			long len = f.length();
+			if (f.delete()) total -= len;
+		}
+	}
+}
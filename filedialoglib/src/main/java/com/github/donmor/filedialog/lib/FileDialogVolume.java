@@ -0,0 +1,48 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogVolume <= [P|FileDialog]
+ * Last modified: 15:40:18 2026/10/17
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import java.io.File;
+
+/**
+ * A storage volume as probed by FileDialog, with the sizes read by the same StatFs call that checked it.
+ */
+@SuppressWarnings("WeakerAccess")
+public class FileDialogVolume {
+	/**
+	 * The mount point of the volume.
+	 */
+	public final File path;
+	/**
+	 * The total size in bytes, or 0 if the volume is pending.
+	 */
+	public final long totalBytes;
+	/**
+	 * The bytes available to the app, or 0 if the volume is pending.
+	 */
+	public final long freeBytes;
+	/**
+	 * Whether the app can write to the volume.
+	 */
+	public final boolean writable;
+	/**
+	 * Whether the volume did not answer within the probe timeout. Its sizes are unknown, and it will be reported again once its probe finishes.
+	 */
+	public final boolean pending;
+
+	FileDialogVolume(File path, long totalBytes, long freeBytes, boolean writable, boolean pending) {
+		this.path = path;
+		this.totalBytes = totalBytes;
+		this.freeBytes = freeBytes;
+		this.writable = writable;
+		this.pending = pending;
+	}
+
+	static FileDialogVolume pending(File path) {
+		return new FileDialogVolume(path, 0, 0, false, true);
+	}
+}
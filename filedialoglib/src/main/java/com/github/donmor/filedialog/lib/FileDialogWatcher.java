@@ -0,0 +1,127 @@
+/*
+ * com.github.donmor.filedialog.lib.FileDialogWatcher <= [P|FileDialog]
+ * Last modified: 00:38:05 2026/10/18
+ * Copyright (c) 2026 donmor
+ */
+
+package com.github.donmor.filedialog.lib;
+
+import android.os.FileObserver;
+import android.os.Handler;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+
+/**
+ * Watches a directory for entries being created, deleted or moved, and for files rewritten or touched in place, which are told apart as they only change details. Events are collected by name and handed over in one batch a moment after the first of them, so a burst of writes costs one update instead of one per event.
+ */
+final class FileDialogWatcher {
+
+	// Events that change the attributes of an entry, but not which entries there are
+	private static final int MODIFY_MASK = FileObserver.CLOSE_WRITE | FileObserver.ATTRIB;
+	private static final int MASK = FileObserver.CREATE | FileObserver.DELETE | FileObserver.MOVED_FROM | FileObserver.MOVED_TO | MODIFY_MASK | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+	// How long events are collected before they are handed over, in milliseconds
+	private static final long COALESCE_DELAY = 250;
+	/**
+	 * Batches larger than this are better handled by a rescan than entry by entry.
+	 */
+	static final int MAX_CHANGES = 128;
+
+	/**
+	 * Receives the changes on the main thread.
+	 */
+	interface Listener {
+		/**
+		 * @param names The names of the entries that were created, deleted or moved, in the order they first changed. Whether each one exists now has to be checked.
+		 */
+		void onChanged(String[] names);
+
+		/**
+		 * Called after {@link #onChanged(String[])}, if any, for entries only rewritten or touched, whose size or modification time may have changed.
+		 *
+		 * @param names The names of the entries, none of which were passed to {@link #onChanged(String[])} in the same batch, or null if too many were modified at once to tell them apart.
+		 */
+		void onModified(String[] names);
+
+		/**
+		 * Called instead of {@link #onChanged(String[])} if the directory itself went away or too many entries changed at once.
+		 */
+		void onInvalidated();
+	}
+
+	final File dir;
+	private final Listener listener;
+	private final FileObserver observer;
+	private final Handler handler = FileDialogLoader.getMainHandler();
+	// Guarded by this
+	private final LinkedHashSet<String> changed = new LinkedHashSet<>(), modified = new LinkedHashSet<>();
+	private boolean scheduled, invalidated, stopped;
+
+	private final Runnable flush = new Runnable() {
+		@Override
+		public void run() {
+			String[] names, modifiedNames;
+			boolean inv, anyModified;
+			synchronized (FileDialogWatcher.this) {
+				scheduled = false;
+				if (stopped) return;
+				inv = invalidated || changed.size() > MAX_CHANGES;
+				names = inv ? null : changed.toArray(new String[changed.size()]);
+				// Entries changed are stat'ed again anyway
+				modified.removeAll(changed);
+				anyModified = !inv && !modified.isEmpty();
+				modifiedNames = anyModified && modified.size() <= MAX_CHANGES ? modified.toArray(new String[modified.size()]) : null;
+				changed.clear();
+				modified.clear();
+				invalidated = false;
+			}
+			if (inv) listener.onInvalidated();
+			else {
+				if (names.length > 0) listener.onChanged(names);
+				if (anyModified) listener.onModified(modifiedNames);
+			}
+		}
+	};
+
+	@SuppressWarnings("deprecation")
+	FileDialogWatcher(File dir, Listener listener) {
+		this.dir = dir;
+		this.listener = listener;
+		// FileObserver(File, int) needs API 29
+		observer = new FileObserver(dir.getAbsolutePath(), MASK) {
+			@Override
+			public void onEvent(int event, String path) {
+				FileDialogWatcher.this.onEvent(event & FileObserver.ALL_EVENTS, path);
+			}
+		};
+	}
+
+	void start() {
+		observer.startWatching();
+	}
+
+	void stop() {
+		observer.stopWatching();
+		synchronized (this) {
+			stopped = true;
+			changed.clear();
+			modified.clear();
+		}
+		handler.removeCallbacks(flush);
+	}
+
+	private synchronized void onEvent(int event, String path) {
+		if (stopped) return;
+		if ((event & (FileObserver.DELETE_SELF | FileObserver.MOVE_SELF)) != 0) invalidated = true;
+		else if (path == null) return;
+		else if ((event & ~MODIFY_MASK) == 0) {
+			// Past the limit only the fact is kept
+			if (modified.size() <= MAX_CHANGES) modified.add(path);
+		} else if (changed.size() <= MAX_CHANGES) changed.add(path);
+		// The first event of a burst schedules the flush, so constant writes are still handed over every COALESCE_DELAY
+		if (!scheduled) {
+			handler.postDelayed(flush, COALESCE_DELAY);
+			scheduled = true;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class FileDialogCacheTest {
+
+	private static final long OLD = 1000000000000L;
+
+	private static FileDialogListing listing(String dir, int n) {
+		FileDialogListing.Builder b = new FileDialogListing.Builder(new File(dir));
+		for (int i = 0; i < n; i++)
+			b.add("file" + i, false, 0, OLD);
+		return b.build(FileDialogListing.NONE, null);
+	}
+
+	@After
+	public void tearDown() {
+		FileDialogCache.clear();
+		FileDialogCache.setMaxSize(FileDialogCache.DEFAULT_MAX_SIZE);
+	}
+
+	@Test
+	public void get_missesWhenModified() {
+		File dir = new File("/sdcard/a");
+		FileDialogCache.put(dir, false, OLD, listing("/sdcard/a", 3), true);
+		assertNotNull(FileDialogCache.get(dir, false, OLD));
+		assertNull(FileDialogCache.get(dir, true, OLD));
+		assertNull(FileDialogCache.get(dir, false, OLD + 1000));
+		assertNull(FileDialogCache.get(dir, false, OLD));
+	}
+
+	@Test
+	public void put_evictsLeastRecentlyUsed() {
+		File a = new File("/sdcard/a"), b = new File("/sdcard/b"), c = new File("/sdcard/c");
+		FileDialogCache.Entry e = FileDialogCache.put(a, false, OLD, listing("/sdcard/a", 100), true);
+		FileDialogCache.setMaxSize(e.size * 2);
+		FileDialogCache.put(b, false, OLD, listing("/sdcard/b", 100), true);
+		assertNotNull(FileDialogCache.get(a, false, OLD));
+		FileDialogCache.put(c, false, OLD, listing("/sdcard/c", 100), true);
+		assertNotNull(FileDialogCache.get(a, false, OLD));
+		assertNull(FileDialogCache.get(b, false, OLD));
+		assertTrue(FileDialogCache.getSize() <= FileDialogCache.getMaxSize());
+	}
+
+	@Test
+	public void orders_areCountedAsTheyAreMade() {
+		FileDialogCache.Entry e = FileDialogCache.put(new File("/sdcard/a"), false, OLD, listing("/sdcard/a", 100), true);
+		long before = FileDialogCache.getSize();
+		e.getFileOrder(null).index(FileDialogOrder.DATE);
+		assertEquals(before + 400, FileDialogCache.getSize());
+		assertEquals(before + 400, e.size);
+		// Made once, counted once
+		e.getFileOrder(null).index(FileDialogOrder.DATE);
+		assertEquals(before + 400, FileDialogCache.getSize());
+	}
+
+	@Test
+	public void put_skipsRecentlyModified() {
+		File dir = new File("/sdcard/a");
+		FileDialogCache.put(dir, false, System.currentTimeMillis(), FileDialogListing.EMPTY, true);
+		assertNull(FileDialogCache.get(dir, false, System.currentTimeMillis()));
+	}
+}
@@ -0,0 +1,31 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FileDialogFilterTest {
+
+	@Test
+	public void meetExtensions_matchesAnySuffixIgnoringCase() {
+		FileDialogFilter filter = new FileDialogFilter("Docs", new String[]{".html", ".htm", ".tar.gz"});
+		assertTrue(filter.meetExtensions("index.html"));
+		assertTrue(filter.meetExtensions("INDEX.HTM"));
+		assertTrue(filter.meetExtensions("backup.Tar.Gz"));
+		assertFalse(filter.meetExtensions("backup.gz"));
+		assertFalse(filter.meetExtensions("page.xhtml5"));
+		assertFalse(filter.meetExtensions("htm"));
+		assertFalse(filter.meetExtensions(""));
+	}
+
+	@Test
+	public void meetExtensions_allAcceptsEverything() {
+		assertTrue(FileDialog.ALL.meetExtensions("anything"));
+		assertTrue(FileDialog.ALL.meetExtensions(""));
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void meetExtensions_rejectsEmptyExtensions() {
+		new FileDialogFilter("None", new String[0]).meetExtensions("a.txt");
+	}
+}
@@ -0,0 +1,126 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class FileDialogListingTest {
+
+	@Test
+	public void build_sortsDirsAndFiles() {
+		FileDialogListing.Builder b = new FileDialogListing.Builder(new File("/sdcard"));
+		b.add("IMG_10.jpg", false, 10, 1000);
+		b.add("Music", true, 0, 2000);
+		b.add("IMG_2.jpg", false, 20, 3000);
+		b.add("Download", true, 0, 4000);
+		FileDialogListing l = b.build(new FileDialogSorter(true, Locale.US));
+		assertEquals(4, l.count());
+		assertArrayEquals(new String[]{"Download", "Music"}, l.names(l.dirs));
+		assertArrayEquals(new String[]{"IMG_2.jpg", "IMG_10.jpg"}, l.names(l.files));
+		assertTrue(l.isDir(l.dirs[0]));
+		assertEquals(20, l.size(l.files[0]));
+		assertEquals(3000, l.time(l.files[0]));
+	}
+
+	@Test
+	public void file_andIdMatchThePath() {
+		FileDialogListing.Builder b = new FileDialogListing.Builder(new File("/sdcard/a"));
+		int pos = b.add("file0", false, FileDialogListing.UNKNOWN, FileDialogListing.UNKNOWN);
+		FileDialogListing l = b.build(FileDialogListing.NONE, null);
+		assertEquals(new File("/sdcard/a", "file0"), l.file(pos));
+		assertEquals(FileDialogListing.id("/sdcard/a/file0"), l.id(pos));
+		// No separator is doubled below the root
+		FileDialogListing.Builder r = new FileDialogListing.Builder(new File("/"));
+		pos = r.add("sdcard", true, 0, 0);
+		assertEquals(FileDialogListing.id(new File("/", "sdcard").getPath()), r.build(FileDialogListing.NONE, null).id(pos));
+	}
+
+	@Test
+	public void snapshot_isNotChangedByLaterEntries() {
+		FileDialogListing.Builder b = new FileDialogListing.Builder(new File("/sdcard"));
+		for (int i = 0; i < 300; i++)
+			b.add("file" + i, false, i, i);
+		FileDialogListing page = b.snapshot(FileDialogListing.NONE, b.positions(false));
+		for (int i = 300; i < 3000; i++)
+			b.add("longer name of file " + i, false, i, i);
+		assertEquals(300, page.count());
+		assertEquals("file299", page.name(299));
+		assertArrayEquals(new int[]{300, 301}, Arrays.copyOf(b.positions(false, 300), 2));
+	}
+
+	@Test
+	public void add_copiesEntriesOfAnotherListing() {
+		FileDialogListing.Builder a = new FileDialogListing.Builder(new File("/sdcard"));
+		int pos = a.add("notes.md", false, 42, 1000);
+		FileDialogListing src = a.build(FileDialogListing.NONE, null);
+		FileDialogListing.Builder b = new FileDialogListing.Builder(new File("/sdcard"));
+		b.add("other", true, 0, 0);
+		int copy = b.add(src, pos);
+		FileDialogListing l = b.build(new int[]{0}, new int[]{copy});
+		assertEquals("notes.md", l.name(copy));
+		assertEquals(42, l.size(copy));
+		assertEquals(src.id(pos), l.id(copy));
+	}
+
+	@Test
+	public void toBuilder_keepsPositionsAndLeavesTheListing() {
+		FileDialogListing.Builder a = new FileDialogListing.Builder(new File("/sdcard"));
+		for (int i = 0; i < 100; i++)
+			a.add("file" + i, false, i, i);
+		FileDialogListing src = a.build(FileDialogListing.NONE, null);
+		FileDialogListing.Builder b = src.toBuilder();
+		int pos = b.add("added", true, 0, 7);
+		for (int i = 0; i < 1000; i++)
+			b.add("more" + i, false, i, i);
+		FileDialogListing l = b.snapshot(new int[]{pos}, src.files);
+		assertEquals(100, pos);
+		assertEquals("file42", l.name(42));
+		assertEquals(42, l.size(42));
+		assertEquals("added", l.name(pos));
+		assertEquals(100, src.count());
+	}
+
+	@Test
+	public void stat_readsTheFileAndLeavesTheColumns() throws IOException {
+		File dir = Files.createTempDirectory("listing").toFile();
+		File a = new File(dir, "a.txt");
+		try {
+			write(a, 10);
+			FileDialogListing l = FileDialogScanner.scan(dir, false, null).build(new FileDialogSorter(true, Locale.US));
+			int pos = l.files[0];
+			l.readAttributes(l.files);
+			// Same name, new size, the directory itself untouched
+			write(a, 20);
+			assertArrayEquals(new long[]{20, 1000000}, l.stat(pos));
+			assertEquals(10, l.size(pos));
+			assertTrue(a.delete());
+			assertArrayEquals(new long[]{0, 0}, l.stat(pos));
+		} finally {
+			a.delete();
+			assertTrue(dir.delete());
+		}
+	}
+
+	private static void write(File f, int size) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(f)) {
+			out.write(new byte[size]);
+		}
+		assertTrue(f.setLastModified(1000000));
+	}
+
+	@Test
+	public void estimate_growsWithTheNames() {
+		FileDialogListing.Builder b = new FileDialogListing.Builder(new File("/sdcard"));
+		for (int i = 0; i < 1000; i++)
+			b.add("f" + i, false, 0, 0);
+		long small = b.build(FileDialogListing.NONE, null).estimate();
+		assertTrue(small < 1000 * 40);
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class FileDialogMetricsTest {
+
+	private final ArrayList<long[]> reported = new ArrayList<>();
+	private final FileDialog.OnMetricsListener listener = new FileDialog.OnMetricsListener() {
+		@Override
+		public void onMetric(int metric, long nanos, int count) {
+			reported.add(new long[]{metric, nanos, count});
+		}
+	};
+
+	@After
+	public void tearDown() {
+		FileDialogMetrics.setListener(null);
+	}
+
+	@Test
+	public void noListener_measuresNothing() {
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_SCAN);
+		assertEquals(0, t);
+		FileDialogMetrics.setListener(listener);
+		// Set in between: the phase was not started, so it is not reported
+		FileDialogMetrics.end(FileDialog.METRIC_SCAN, t, 10);
+		assertTrue(reported.isEmpty());
+	}
+
+	@Test
+	public void phase_reportsDurationAndCount() throws InterruptedException {
+		FileDialogMetrics.setListener(listener);
+		long t = FileDialogMetrics.begin(FileDialog.METRIC_SORT);
+		Thread.sleep(2);
+		FileDialogMetrics.end(FileDialog.METRIC_SORT, t, 42);
+		assertEquals(1, reported.size());
+		assertEquals(FileDialog.METRIC_SORT, reported.get(0)[0]);
+		assertTrue(reported.get(0)[1] >= 2000000);
+		assertEquals(42, reported.get(0)[2]);
+	}
+
+	@Test
+	public void canceledPhase_isNotReported() {
+		FileDialogMetrics.setListener(listener);
+		FileDialogMetrics.end(FileDialog.METRIC_FILTER, FileDialogMetrics.begin(FileDialog.METRIC_FILTER), -1);
+		FileDialogMetrics.endAsync(FileDialog.METRIC_FIRST_FRAME, FileDialogMetrics.beginAsync(FileDialog.METRIC_FIRST_FRAME), -1);
+		assertTrue(reported.isEmpty());
+	}
+
+	@Test
+	public void count_isNotTimed() {
+		FileDialogMetrics.count(FileDialog.METRIC_CACHE_HIT, 7);
+		FileDialogMetrics.setListener(listener);
+		FileDialogMetrics.count(FileDialog.METRIC_CACHE_HIT, 7);
+		assertEquals(1, reported.size());
+		assertArrayEquals(new long[]{FileDialog.METRIC_CACHE_HIT, 0, 7}, reported.get(0));
+	}
+}
@@ -0,0 +1,138 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class FileDialogOrderTest {
+
+	private File root;
+	private File[] files;
+	private FileDialogListing listing;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("order").toFile();
+		files = new File[]{create("a.txt", 30, 3000), create("B.jpg", 10, 1000), create("c10.jpg", 20, 2000), create("d", 10, 4000)};
+		// Natural name order, as listings are kept
+		listing = FileDialogScanner.scan(root, false, null).build(new FileDialogSorter(true, Locale.US));
+	}
+
+	@After
+	public void tearDown() {
+		for (File f : files)
+			assertTrue(f.delete());
+		assertTrue(root.delete());
+	}
+
+	private File create(String name, int size, long modified) throws IOException {
+		File f = new File(root, name);
+		try (FileOutputStream out = new FileOutputStream(f)) {
+			out.write(new byte[size]);
+		}
+		assertTrue(f.setLastModified(modified * 1000));
+		return f;
+	}
+
+	private FileDialogOrder order(boolean dirs) {
+		return new FileDialogOrder(listing, listing.files, dirs);
+	}
+
+	private String[] names(FileDialogOrder order, int key) {
+		int[] index = order.index(key);
+		String[] out = new String[order.size()];
+		for (int i = 0; i < out.length; i++)
+			out[i] = listing.name(order.base[index != null ? index[i] : i]);
+		return out;
+	}
+
+	@Test
+	public void natural_isTheOrderOfTheListing() {
+		FileDialogOrder order = order(false);
+		assertTrue(order.isReady(FileDialogOrder.NATURAL));
+		assertNull(order.index(FileDialogOrder.NATURAL));
+	}
+
+	@Test
+	public void size_keepsNameOrderOfEqualSizes() {
+		FileDialogOrder order = order(false);
+		assertFalse(order.isReady(FileDialogOrder.SIZE));
+		assertArrayEquals(new String[]{"B.jpg", "d", "c10.jpg", "a.txt"}, names(order, FileDialogOrder.SIZE));
+		assertTrue(order.isReady(FileDialogOrder.SIZE));
+	}
+
+	@Test
+	public void date_andType() {
+		FileDialogOrder order = order(false);
+		assertArrayEquals(new String[]{"B.jpg", "c10.jpg", "a.txt", "d"}, names(order, FileDialogOrder.DATE));
+		assertArrayEquals(new String[]{"d", "B.jpg", "c10.jpg", "a.txt"}, names(order, FileDialogOrder.TYPE));
+	}
+
+	@Test
+	public void indexIsKept() {
+		FileDialogOrder order = order(false);
+		assertSame(order.index(FileDialogOrder.DATE), order.index(FileDialogOrder.DATE));
+	}
+
+	@Test
+	public void attributesOfTheScanAreUsed() {
+		// Nothing is read again after the scan
+		assertTrue(files[0].setLastModified(500 * 1000));
+		assertArrayEquals(new String[]{"B.jpg", "c10.jpg", "a.txt", "d"}, names(order(false), FileDialogOrder.DATE));
+	}
+
+	@Test
+	public void moveTo_keepsIndexes() {
+		FileDialogOrder order = order(false);
+		int[] index = order.index(FileDialogOrder.SIZE);
+		FileDialogListing.Builder b = new FileDialogListing.Builder(root);
+		int[] base = new int[listing.files.length];
+		for (int i = base.length - 1; i >= 0; i--)
+			base[i] = b.add(listing, listing.files[i]);
+		FileDialogOrder moved = order.moveTo(b.build(FileDialogListing.NONE, base), base);
+		assertTrue(moved.isReady(FileDialogOrder.SIZE));
+		assertSame(index, moved.index(FileDialogOrder.SIZE));
+	}
+
+	@Test
+	public void edit_matchesAnOrderMadeAgain() {
+		FileDialogOrder order = order(false);
+		int[] keys = {FileDialogOrder.NAME, FileDialogOrder.SIZE, FileDialogOrder.DATE, FileDialogOrder.TYPE};
+		for (int key : keys)
+			order.index(key);
+		// c10.jpg removed, a.txt rewritten and e.png added, both appended
+		FileDialogListing.Builder b = listing.toBuilder();
+		int a = b.add("a.txt", false, 5, 2500), e = b.add("e.png", false, 15, 1500);
+		int[] base = {a, listing.files[1], listing.files[3], e};
+		FileDialogListing edited = b.snapshot(FileDialogListing.NONE, base);
+		FileDialogOrder updated = order.edit(edited, base), made = new FileDialogOrder(edited, base, false);
+		for (int key : keys) {
+			assertTrue(updated.isReady(key));
+			assertArrayEquals(made.index(key), updated.index(key));
+		}
+	}
+
+	@Test
+	public void dirs_keepNameOrderForSizeAndType() {
+		FileDialogOrder order = order(true);
+		assertFalse(order.orders(FileDialogOrder.SIZE));
+		assertNull(order.index(FileDialogOrder.TYPE));
+		assertTrue(order.orders(FileDialogOrder.DATE));
+	}
+
+	@Test
+	public void extension() {
+		assertEquals("jpg", FileDialogOrder.extension("IMG.JPG"));
+		assertEquals("gz", FileDialogOrder.extension("a.tar.gz"));
+		assertEquals("", FileDialogOrder.extension(".nomedia"));
+		assertEquals("", FileDialogOrder.extension("README"));
+	}
+}
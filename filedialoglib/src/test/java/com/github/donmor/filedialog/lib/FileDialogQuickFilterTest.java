@@ -0,0 +1,27 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FileDialogQuickFilterTest {
+
+	@Test
+	public void filter_ranksSubstringBeforeFuzzy() {
+		FileDialogQuickFilter f = new FileDialogQuickFilter(new String[]{"Report.pdf", "photo.jpg", "repo.txt", "notes.md"});
+		assertArrayEquals(new int[]{0, 2}, f.filter("REPO"));
+		// "pt" is a substring of none, but appears in order in three names
+		assertArrayEquals(new int[]{0, 1, 2}, f.filter("pt"));
+		assertArrayEquals(new int[]{1, 3, 0, 2}, f.filter("ot"));
+	}
+
+	@Test
+	public void filter_narrowsAndWidens() {
+		FileDialogQuickFilter f = new FileDialogQuickFilter(new String[]{"abc", "abd", "xyz", "ab"});
+		assertArrayEquals(new int[]{0, 1, 3}, f.filter("a"));
+		assertArrayEquals(new int[]{0, 1, 3}, f.filter("ab"));
+		assertArrayEquals(new int[]{1}, f.filter("abd"));
+		assertArrayEquals(new int[]{0, 1, 3}, f.filter("ab"));
+		assertArrayEquals(new int[0], f.filter("abz"));
+	}
+}
@@ -0,0 +1,99 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class FileDialogSearchTest {
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("search").toFile();
+		File deep = new File(root, "a/b/c");
+		assertTrue(deep.mkdirs());
+		assertTrue(new File(root, "Report.pdf").createNewFile());
+		assertTrue(new File(root, "a/report-draft.txt").createNewFile());
+		assertTrue(new File(deep, "old_report.pdf").createNewFile());
+		// A link back to the root must not be followed forever
+		Files.createSymbolicLink(new File(deep, "loop").toPath(), root.toPath());
+	}
+
+	@After
+	public void tearDown() {
+		FileDialogSearch.setLimits(FileDialogSearch.DEFAULT_MAX_DEPTH, FileDialogSearch.DEFAULT_MAX_RESULTS);
+		delete(root);
+	}
+
+	private static void delete(File f) {
+		File[] children = Files.isSymbolicLink(f.toPath()) ? null : f.listFiles();
+		if (children != null)
+			for (File c : children)
+				delete(c);
+		assertTrue(f.delete());
+	}
+
+	private static ArrayList<String> search(File root, String query, FileDialogSearch.FileMatcher matcher) {
+		final ArrayList<String> names = new ArrayList<>();
+		new FileDialogSearch(root, query, false, false, matcher).run(new FileDialogSearch.ResultListener() {
+			@Override
+			public void onResults(File[] dirs, File[] files, boolean last) {
+				for (File f : files)
+					names.add(f.getName());
+			}
+		});
+		return names;
+	}
+
+	@Test
+	public void run_findsMatchesOnceThroughLinkLoops() {
+		ArrayList<String> names = search(root, "REPORT", null);
+		String[] found = names.toArray(new String[0]);
+		Arrays.sort(found);
+		assertArrayEquals(new String[]{"Report.pdf", "old_report.pdf", "report-draft.txt"}, found);
+	}
+
+	@Test
+	public void run_appliesMatcherAndLimits() {
+		FileDialogSearch.FileMatcher pdf = new FileDialogSearch.FileMatcher() {
+			@Override
+			public boolean accept(String name) {
+				return name.endsWith(".pdf");
+			}
+		};
+		assertEquals(2, search(root, "report", pdf).size());
+		FileDialogSearch.setLimits(1, FileDialogSearch.DEFAULT_MAX_RESULTS);
+		assertEquals(1, search(root, "report", pdf).size());
+		FileDialogSearch.setLimits(FileDialogSearch.DEFAULT_MAX_DEPTH, 1);
+		assertEquals(1, search(root, "report", null).size());
+	}
+
+	@Test(timeout = 10000)
+	public void run_skipsDirectoriesThatFail() throws IOException {
+		// More failing directories than workers
+		for (int i = 0; i < 8; i++) {
+			File bad = new File(root, "bad" + i);
+			assertTrue(bad.mkdir());
+			assertTrue(new File(bad, "report.bad").createNewFile());
+		}
+		FileDialogSearch.FileMatcher failing = new FileDialogSearch.FileMatcher() {
+			@Override
+			public boolean accept(String name) {
+				if (name.endsWith(".bad")) throw new IllegalStateException(name);
+				return true;
+			}
+		};
+		String[] found = search(root, "report", failing).toArray(new String[0]);
+		Arrays.sort(found);
+		assertArrayEquals(new String[]{"Report.pdf", "old_report.pdf", "report-draft.txt"}, found);
+	}
+}
@@ -0,0 +1,51 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class FileDialogSelectionTest {
+
+	private static File[] listing(String dir, int n) {
+		File[] files = new File[n];
+		for (int i = 0; i < n; i++)
+			files[i] = new File(dir, "file" + i);
+		return files;
+	}
+
+	@Test
+	public void attach_keepsSelectionAcrossListings() {
+		FileDialogSelection s = new FileDialogSelection();
+		s.attach(listing("/sdcard/a", 10));
+		s.set(3, true);
+		s.attach(listing("/sdcard/b", 5));
+		s.set(0, true);
+		assertEquals(2, s.size());
+		assertArrayEquals(new File[]{new File("/sdcard/a", "file3"), new File("/sdcard/b", "file0")}, s.toArray());
+		// A rescan of the same folder yields new File objects that are equal by path
+		s.attach(listing("/sdcard/a", 10));
+		assertTrue(s.isSelected(3));
+		assertFalse(s.isSelected(0));
+		assertEquals(2, s.size());
+	}
+
+	@Test
+	public void bulkOperations() {
+		FileDialogSelection s = new FileDialogSelection();
+		s.attach(listing("/sdcard/a", 130));
+		s.set(5, true);
+		s.selectRange(70);
+		assertEquals(66, s.size());
+		s.invert();
+		assertEquals(64, s.size());
+		assertFalse(s.isSelected(5));
+		assertTrue(s.isSelected(129));
+		s.selectAll();
+		assertTrue(s.isAllSelected());
+		assertEquals(130, s.toArray().length);
+		s.clear();
+		assertEquals(0, s.size());
+	}
+}
@@ -0,0 +1,77 @@
+package com.github.donmor.filedialog.lib;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class FileDialogSorterTest {
+
+	private static String[] sort(FileDialogSorter sorter, String... names) {
+		int[] positions = new int[names.length];
+		for (int i = 0; i < names.length; i++)
+			positions[i] = i;
+		sorter.sort(names, positions);
+		String[] out = new String[names.length];
+		for (int i = 0; i < names.length; i++)
+			out[i] = names[positions[i]];
+		return out;
+	}
+
+	private static FileDialogSorter.Names names(final String... names) {
+		return new FileDialogSorter.Names() {
+			@Override
+			public int size() {
+				return names.length;
+			}
+
+			@Override
+			public String get(int i) {
+				return names[i];
+			}
+		};
+	}
+
+	@Test
+	public void natural_ordersDigitRunsByValue() {
+		FileDialogSorter sorter = new FileDialogSorter(true, null);
+		assertArrayEquals(new String[]{"IMG_1.jpg", "IMG_2.jpg", "IMG_10.jpg", "IMG_100.jpg"},
+				sort(sorter, "IMG_10.jpg", "IMG_100.jpg", "IMG_2.jpg", "IMG_1.jpg"));
+	}
+
+	@Test
+	public void natural_leadingZerosOnlyBreakTies() {
+		FileDialogSorter sorter = new FileDialogSorter(true, null);
+		assertArrayEquals(new String[]{"a7", "a007", "a8"}, sort(sorter, "a8", "a007", "a7"));
+	}
+
+	@Test
+	public void plain_isCaseInsensitive() {
+		FileDialogSorter sorter = new FileDialogSorter(false, null);
+		assertArrayEquals(new String[]{"a", "B", "c", "IMG_10", "IMG_2"}, sort(sorter, "c", "IMG_2", "B", "IMG_10", "a"));
+	}
+
+	@Test
+	public void collated_keepsAccentsNextToBaseLetter() {
+		FileDialogSorter sorter = new FileDialogSorter(true, Locale.FRENCH);
+		assertArrayEquals(new String[]{"e", "\u00e9", "f"}, sort(sorter, "f", "\u00e9", "e"));
+	}
+
+	@Test
+	public void binarySearch_findsEntriesAndInsertionPoints() {
+		FileDialogSorter sorter = new FileDialogSorter(true, null);
+		FileDialogSorter.Names sorted = names("IMG_1", "IMG_2", "IMG_10");
+		assertEquals(2, sorter.binarySearch(sorted, "IMG_10"));
+		assertEquals(-3, sorter.binarySearch(sorted, "IMG_3"));
+		assertEquals(-4, sorter.binarySearch(sorted, "IMG_11"));
+	}
+
+	@Test
+	public void binarySearch_collatesLikeSort() {
+		FileDialogSorter sorter = new FileDialogSorter(true, Locale.FRENCH);
+		FileDialogSorter.Names sorted = names(sort(sorter, "f", "\u00e9", "e", "IMG_10", "IMG_2"));
+		assertEquals(1, sorter.binarySearch(sorted, "\u00e9"));
+		assertEquals(-3, sorter.binarySearch(sorted, "ez"));
+	}
+}